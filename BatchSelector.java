@@ -0,0 +1,475 @@
+/** This class is used to choose the cards to keep for many deals read from
+ *  a stream, one deal per line.
+ *
+ *  Every line holds 4-6 cards separated by spaces, tabs or commas, each card
+ *  being two characters for its rank and suit as in the command line. For
+ *  every line, one line is written with the 4 cards to keep, or with
+ *  "error: " and the reason if the line is not a valid deal, so that one bad
+ *  deal does not stop the rest of the batch.
+ *
+ *  With statistics(), every choice of the cards to keep is written instead,
+ *  one line each, as CSV or as JSON, with the distribution of its points in
+ *  hand over the start cards: the mean, the variance, some percentiles, the
+ *  chance of scoring at least some points and the count of every score. See
+ *  KeepStatistics.
+ *
+ *  With expectedScore(true), the expected score of the cards to keep is
+ *  written after them, from the table of the Selector when it has one that
+ *  holds the deal. With latencies(), the time taken to answer every deal
+ *  is recorded, which SelectServer reports.
+ *
+ *  The bytes are read and written through buffers of this object and the
+ *  cards are parsed straight from the bytes, so no String is created for a
+ *  valid deal. The output is flushed whenever no more input is available
+ *  yet, which lets a client send a batch of deals and wait for the answers.
+ *
+ * @author Dongsheng Jiang
+ * @login_id DONGSHENGJ
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+public class BatchSelector {
+
+	// constant declaration
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final int MIN_CARD = 4;
+	private static final int MAX_CARD = 6;
+	private static final byte[] ERROR = "error: ".getBytes();
+	// the percentiles written for every choice
+	private static final int[] PERCENTILES = {10, 25, 50, 75, 90};
+	// number of digits written after the decimal point
+	private static final int DECIMALS = 4;
+
+
+	// enumerate the formats of the statistics of the choices.
+	public static enum Format {
+		CSV,
+		JSON
+	}
+
+
+	// buffer of bytes read from the input
+	private final byte[] in = new byte[BUFFER_SIZE];
+	// buffer of bytes to be written to the output
+	private final byte[] out = new byte[BUFFER_SIZE];
+	private int outLength = 0;
+
+	// the cards read so far from the current line
+	private final int[] cards = new int[MAX_CARD];
+	private int numCard = 0;
+	// the first two characters and the length of the current card
+	private char rank;
+	private char suit;
+	private int tokenLength = 0;
+	// the first problem found in the current line, null if there is none
+	private String error = null;
+
+	// the number of lines answered
+	private long numDeal = 0;
+
+	// used to choose the cards to keep
+	private final Selector selector;
+	// the format of the statistics, null to write only the cards to keep
+	private Format format = null;
+	// the points the chance of scoring at least is written for
+	private int atLeast = 0;
+	private final KeepStatistics statistics = new KeepStatistics();
+	// whether the expected score is written after the cards to keep
+	private boolean expectedScore = false;
+	// where the time taken to answer every deal is recorded, null not to record it
+	private LatencyHistogram latencies = null;
+	// the digits of a number being written
+	private final byte[] digits = new byte[20];
+
+
+	/** Construct a BatchSelector.
+	 *
+	 * @param selector the Selector used to choose the cards to keep for each deal.
+	 */
+	public BatchSelector(Selector selector) {
+		this.selector = selector;
+	}
+
+
+	/** write the statistics of every choice instead of the cards to keep.
+	 *
+	 * @param format CSV or JSON, null to write only the cards to keep.
+	 * @param atLeast the points the chance of scoring at least is written for.
+	 * @return this object.
+	 */
+	public BatchSelector statistics(Format format, int atLeast) {
+		this.format = format;
+		this.atLeast = atLeast;
+		return this;
+	}
+
+
+	/** set whether the expected score is written after the cards to keep.
+	 *
+	 * @param expectedScore true to write it.
+	 * @return this object.
+	 */
+	public BatchSelector expectedScore(boolean expectedScore) {
+		this.expectedScore = expectedScore;
+		return this;
+	}
+
+
+	/** set where the time taken to answer every deal is recorded, which may be
+	 *  shared by many BatchSelector objects.
+	 *
+	 * @param latencies the times, null not to record them.
+	 * @return this object.
+	 */
+	public BatchSelector latencies(LatencyHistogram latencies) {
+		this.latencies = latencies;
+		return this;
+	}
+
+
+	/** read all the deals from input and write the cards to keep to output.
+	 *
+	 * @param input the stream of deals, one per line.
+	 * @param output the stream to write one line per deal to.
+	 * @throws IOException if reading or writing fails.
+	 */
+	public void run(InputStream input, OutputStream output) throws IOException {
+		if (format == Format.CSV) {
+			writeCsvHeader(output);
+		}
+		boolean lineStarted = false;
+		int n;
+		while ((n = input.read(in)) > 0) {
+			for (int i = 0; i < n; i++) {
+				byte b = in[i];
+				if (b == '\n') {
+					endLine(output);
+					lineStarted = false;
+				}
+				else {
+					readByte(b);
+					lineStarted = true;
+				}
+			}
+			// answer what has been read before waiting for more input
+			if (input.available() == 0) {
+				flush(output);
+			}
+		}
+		// the last line may not end with a line break
+		if (lineStarted) {
+			endLine(output);
+		}
+		flush(output);
+	}
+
+
+	/** answer one line holding a deal, the answer staying in the output buffer
+	 *  until flush() is called or the buffer is full.
+	 *
+	 * @param line the bytes of the line, without the line break.
+	 * @param offset the position of the first byte of the line.
+	 * @param length the number of bytes in the line.
+	 * @param output the stream to write the answer to.
+	 * @throws IOException if writing fails.
+	 */
+	public void answer(byte[] line, int offset, int length, OutputStream output) throws IOException {
+		for (int i = offset; i < offset + length; i++) {
+			readByte(line[i]);
+		}
+		endLine(output);
+	}
+
+
+	/** @return the number of deals answered so far */
+	public long numDeal() {
+		return numDeal;
+	}
+
+
+	/** add one byte of the current line to the current card */
+	private void readByte(byte b) {
+		if (b == ' ' || b == '\t' || b == ',' || b == '\r') {
+			endToken();
+			return;
+		}
+		if (tokenLength == 0) rank = (char) (b & 0xFF);
+		else if (tokenLength == 1) suit = (char) (b & 0xFF);
+		tokenLength++;
+	}
+
+
+	/** finish the current card, if any */
+	private void endToken() {
+		if (tokenLength == 0)
+			return;
+
+		if (error == null) {
+			if (tokenLength != 2) {
+				error = "Invalid input, make sure every arguments contain two characters";
+			}
+			else if (numCard < MAX_CARD) {
+				int id = Card.id(rank, suit);
+				if (id < 0) {
+					error = "" + rank + suit + " is an invalid input.";
+				}
+				cards[numCard] = id;
+			}
+		}
+		numCard++;
+		tokenLength = 0;
+	}
+
+
+	/** answer the current line and get ready for the next one */
+	private void endLine(OutputStream output) throws IOException {
+		endToken();
+
+		if (numCard < MIN_CARD || numCard > MAX_CARD) {
+			error = "Please input 4-6 cards";
+		}
+
+		long start = System.nanoTime();
+		Hand hand = null;
+		Hand keep = null;
+		RankedKeep best = null;
+		if (error == null) {
+			try {
+				hand = new Hand(cards, numCard);
+				if (format != null)
+					statistics.compute(hand);
+				else if (expectedScore)
+					keep = (best = selector.best(hand)).keep();
+				else
+					keep = selector.select(hand);
+			} catch (IllegalArgumentException e) {
+				error = e.getMessage().trim().replace('\n', ' ');
+			}
+		}
+		if (latencies != null) {
+			latencies.record(System.nanoTime() - start);
+		}
+
+		if (format != null) {
+			writeStatistics(output, hand);
+		}
+		else if (error != null) {
+			write(output, ERROR, ERROR.length);
+			byte[] message = error.getBytes();
+			write(output, message, message.length);
+			write(output, (byte) '\n');
+		}
+		else {
+			writeCards(output, keep, (1 << keep.getNumCard()) - 1, (byte) ' ', (byte) 0);
+			if (best != null) {
+				write(output, (byte) ' ');
+				writeDecimal(output, best.expectedScore());
+			}
+			write(output, (byte) '\n');
+		}
+
+		numDeal++;
+		numCard = 0;
+		error = null;
+	}
+
+
+	/** write the first line of the CSV, naming the columns */
+	private void writeCsvHeader(OutputStream output) throws IOException {
+		StringBuilder header = new StringBuilder("deal,keep,best,mean,variance,min");
+		for (int p : PERCENTILES) {
+			header.append(",p").append(p);
+		}
+		header.append(",max,at_least_").append(atLeast);
+		for (int points = 0; points <= ScoreDistribution.MAX_SCORE; points++) {
+			header.append(",count_").append(points);
+		}
+		byte[] bytes = header.append('\n').toString().getBytes();
+		write(output, bytes, bytes.length);
+	}
+
+
+	/** write one line for every choice of the cards to keep from a hand, or
+	 *  one line for the error in the current line.
+	 */
+	private void writeStatistics(OutputStream output, Hand hand) throws IOException {
+		boolean json = format == Format.JSON;
+		if (error != null) {
+			if (json) writeAscii(output, "{\"deal\":");
+			writeNumber(output, numDeal + 1);
+			writeAscii(output, json ? ",\"error\":" : ",");
+			writeQuoted(output, error);
+			writeAscii(output, json ? "}\n" : "\n");
+			return;
+		}
+
+		for (int k = 0; k < statistics.numChoice(); k++) {
+			ScoreDistribution distribution = statistics.distribution(k);
+			boolean best = k == statistics.best();
+			if (json) {
+				writeAscii(output, "{\"deal\":");
+				writeNumber(output, numDeal + 1);
+				writeAscii(output, ",\"keep\":[");
+				writeCards(output, hand, statistics.positions(k), (byte) ',', (byte) '"');
+				writeAscii(output, best ? "],\"best\":true,\"mean\":" : "],\"best\":false,\"mean\":");
+				writeDecimal(output, distribution.mean());
+				writeAscii(output, ",\"variance\":");
+				writeDecimal(output, distribution.variance());
+				writeAscii(output, ",\"min\":");
+				writeNumber(output, distribution.min());
+				writeAscii(output, ",\"percentiles\":{");
+				for (int i = 0; i < PERCENTILES.length; i++) {
+					if (i > 0) write(output, (byte) ',');
+					write(output, (byte) '"');
+					writeNumber(output, PERCENTILES[i]);
+					writeAscii(output, "\":");
+					writeNumber(output, distribution.percentile(PERCENTILES[i]));
+				}
+				writeAscii(output, "},\"max\":");
+				writeNumber(output, distribution.max());
+				writeAscii(output, ",\"atLeast\":{\"points\":");
+				writeNumber(output, atLeast);
+				writeAscii(output, ",\"chance\":");
+				writeDecimal(output, distribution.atLeast(atLeast));
+				writeAscii(output, "},\"counts\":[");
+				for (int points = 0; points <= ScoreDistribution.MAX_SCORE; points++) {
+					if (points > 0) write(output, (byte) ',');
+					writeNumber(output, distribution.count(points));
+				}
+				writeAscii(output, "]}\n");
+			}
+			else {
+				writeNumber(output, numDeal + 1);
+				write(output, (byte) ',');
+				writeCards(output, hand, statistics.positions(k), (byte) ' ', (byte) 0);
+				writeAscii(output, best ? ",1," : ",0,");
+				writeDecimal(output, distribution.mean());
+				write(output, (byte) ',');
+				writeDecimal(output, distribution.variance());
+				write(output, (byte) ',');
+				writeNumber(output, distribution.min());
+				for (int p : PERCENTILES) {
+					write(output, (byte) ',');
+					writeNumber(output, distribution.percentile(p));
+				}
+				write(output, (byte) ',');
+				writeNumber(output, distribution.max());
+				write(output, (byte) ',');
+				writeDecimal(output, distribution.atLeast(atLeast));
+				for (int points = 0; points <= ScoreDistribution.MAX_SCORE; points++) {
+					write(output, (byte) ',');
+					writeNumber(output, distribution.count(points));
+				}
+				write(output, (byte) '\n');
+			}
+		}
+	}
+
+
+	/** write the cards at some positions in hand, with a separator between
+	 *  them and each of them in quotes unless quote is 0.
+	 */
+	private void writeCards(OutputStream output, Hand hand, int positions, byte separator, byte quote) throws IOException {
+		boolean first = true;
+		for (int i = 0; i < hand.getNumCard(); i++) {
+			if ((positions & 1 << i) == 0) continue;
+			if (!first) write(output, separator);
+			if (quote != 0) write(output, quote);
+			write(output, (byte) Card.rankChar(hand.cardAt(i)));
+			write(output, (byte) Card.suitChar(hand.cardAt(i)));
+			if (quote != 0) write(output, quote);
+			first = false;
+		}
+	}
+
+
+	/** write a whole number without creating a String */
+	private void writeNumber(OutputStream output, long number) throws IOException {
+		if (number < 0) {
+			write(output, (byte) '-');
+			number = -number;
+		}
+		int n = 0;
+		do {
+			digits[n++] = (byte) ('0' + number % 10);
+			number /= 10;
+		} while (number != 0);
+		while (n > 0) {
+			write(output, digits[--n]);
+		}
+	}
+
+
+	/** write a number with DECIMALS digits after the point */
+	private void writeDecimal(OutputStream output, double number) throws IOException {
+		if (number < 0) {
+			write(output, (byte) '-');
+			number = -number;
+		}
+		long scale = 1;
+		for (int i = 0; i < DECIMALS; i++) {
+			scale *= 10;
+		}
+		long scaled = Math.round(number * scale);
+		writeNumber(output, scaled / scale);
+		write(output, (byte) '.');
+		for (long unit = scale / 10; unit > 0; unit /= 10) {
+			write(output, (byte) ('0' + scaled / unit % 10));
+		}
+	}
+
+
+	/** write a text in double quotes, escaping the quotes and backslashes in it
+	 *  the way JSON does, or doubling the quotes the way CSV does.
+	 */
+	private void writeQuoted(OutputStream output, String text) throws IOException {
+		write(output, (byte) '"');
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == '"') write(output, (byte) (format == Format.JSON ? '\\' : '"'));
+			else if (c == '\\' && format == Format.JSON) write(output, (byte) '\\');
+			// the characters of a card are bytes read from the input, and JSON
+			// does not allow the control characters among them
+			write(output, (byte) (c < ' ' && format == Format.JSON ? ' ' : c));
+		}
+		write(output, (byte) '"');
+	}
+
+
+	/** write a text of ASCII characters without creating any array */
+	private void writeAscii(OutputStream output, String text) throws IOException {
+		for (int i = 0; i < text.length(); i++) {
+			write(output, (byte) text.charAt(i));
+		}
+	}
+
+
+	/** add one byte to the output buffer */
+	private void write(OutputStream output, byte b) throws IOException {
+		if (outLength == out.length) flush(output);
+		out[outLength++] = b;
+	}
+
+
+	/** add some bytes to the output buffer */
+	private void write(OutputStream output, byte[] bytes, int length) throws IOException {
+		for (int i = 0; i < length; i++) {
+			write(output, bytes[i]);
+		}
+	}
+
+
+	/** write everything in the output buffer.
+	 *
+	 * @param output the stream to write to.
+	 * @throws IOException if writing fails.
+	 */
+	public void flush(OutputStream output) throws IOException {
+		output.write(out, 0, outLength);
+		output.flush();
+		outLength = 0;
+	}
+}
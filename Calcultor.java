@@ -17,18 +17,22 @@ public class Calcultor {
 	private static final int POINTS_FOR_PAIRS_CASE_2 = 4;
 	private static final int POINTS_FOR_PAIRS_CASE_3 = 3;
 	
+	// index of the card giving "One for his nob" when the start card is a club,
+	// the other suits follow it.
+	private static final int ID_FOR_NOB = Card.id(RANK_FOR_NOB, 'C');
+	// a cursor for each thread to go through the combinations of cards.
+	private static final ThreadLocal<Combinations> CURSOR = ThreadLocal.withInitial(Combinations::new);
+	
 	
 	/** calculate the points contributed by "One for his nob" rule.
 	 * 
-	 * @param handCard a Hand type pramater representing a set of cards in hand.
-	 * @param startCard a start card of Card type.
+	 * @param hand a mask representing a set of cards in hand.
+	 * @param startCard the index of the start card.
 	 * @return 1, if there exists a "One for his nob"; 0, otherwise.
 	 */
-	private static int pointsForNob(Hand handCard, Card startCard) {
-		for (Card card : handCard.getHand()) {
-			if (card.equals(new Card(RANK_FOR_NOB, startCard.getSuit())))
-				return POINTS_FOR_NOB;
-		}
+	private static int pointsForNob(long hand, int startCard) {
+		if ((hand & 1L << (ID_FOR_NOB + Card.suitOf(startCard))) != 0)
+			return POINTS_FOR_NOB;
 		
 		return 0;
 	}
@@ -36,37 +40,54 @@ public class Calcultor {
 	
 	/** calculate the points contributed by "Flushes" rule
 	 * 
-	 * @param handCard a Hand type pramater representing a set of cards in hand.
-	 * @param startCard a start card of Card type.
-	 * @return 4 if handCard are of the same suit, 5 if startCard also the same suit.
+	 * @param hand a mask representing a set of cards in hand.
+	 * @param startCard the index of the start card.
+	 * @return 4 if hand are of the same suit, 5 if startCard also the same suit.
 	 */
-	private static int pointsForFlushes(Hand handCard, Card startCard) {
-		Card[] cards = handCard.getHand();
+	private static int pointsForFlushes(long hand, int startCard) {
+		if (hand == 0)
+			return 0;
+		
+		// test wether all cards in hand have the same suit as the first one
+		int suit = Card.suitOf(Long.numberOfTrailingZeros(hand));
+		if ((hand & ~Card.suitMask(suit)) != 0)
+			return 0;
 		
-		// test wether all cards in hand have the same suit
-		for (int i = 1; i < cards.length; i++) {
-			if (!cards[i].suitEquals(cards[0]))
-				return 0;
-		}
 		// test wether start card also has the same suit
-		return startCard.suitEquals(cards[0]) ? POINTS_FOR_FLUSHES_CASE_2 : POINTS_FOR_FLUSHES_CASE_1;
+		return Card.suitOf(startCard) == suit ? POINTS_FOR_FLUSHES_CASE_2 : POINTS_FOR_FLUSHES_CASE_1;
+	}
+	
+	
+	/** calculate the points contributed by "Flushes" rule in the crib, where
+	 *  the cards only count if the start card also has the same suit.
+	 * 
+	 * @param crib a mask representing the cards in the crib.
+	 * @param startCard the index of the start card.
+	 * @return 5 if the crib and startCard are all of the same suit, 0 otherwise.
+	 */
+	private static int pointsForCribFlushes(long crib, int startCard) {
+		if ((crib & ~Card.suitMask(Card.suitOf(startCard))) != 0)
+			return 0;
+		
+		return POINTS_FOR_FLUSHES_CASE_2;
 	}
 
 	
 	/** calculate the points contributed by "15s" rule
 	 * 
-	 * @param handCard a Hand type pramater representing a set of cards in hand.
+	 * @param cards a mask representing a set of cards in hand, including the start card.
 	 * @return a int type representing the points contributed by "15s"
 	 */
-	private static int pointsFor15S(Hand hand) {
-		// create a list to store all possible combination of cards
-		List<Hand> list = Calcultor.combination(hand);
+	private static int pointsFor15S(long cards) {
+		Combinations cursor = CURSOR.get();
 		
 		// count the points for 15S from all the combintions 
 		int points = 0;
-		for (Hand combination : list) {
-			if (combination.value() == 15) {
-				points += POINTS_FOR_15S;
+		for (int num = 1; num <= Long.bitCount(cards); num++) {
+			for (cursor.reset(cards, num); cursor.next(); ) {
+				if (value(cursor.mask()) == 15) {
+					points += POINTS_FOR_15S;
+				}
 			}
 		}
 		return points;
@@ -75,17 +96,16 @@ public class Calcultor {
 	
 	/**Calculate the points contributed by "Pairs" rule
 	 * 
-	 * @param handCard a Hand type pramater representing a set of cards in hand.
+	 * @param cards a mask representing a set of cards in hand, including the start card.
 	 * @return a int type representing the points contributed by "Pairs"
 	 */
-	private static int pointsForPairs(Hand hand) {
-		// create a list to store all possible combination of cards
-		List<Hand> list = Calcultor.combination(hand, 2);
+	private static int pointsForPairs(long cards) {
+		Combinations cursor = CURSOR.get();
 		
 		// count the points for Pairs from all the combintions
 		int points = 0;
-		for (Hand combination : list) {
-			if (combination.getHand()[0].rankEquals(combination.getHand()[1])) {
+		for (cursor.reset(cards, 2); cursor.next(); ) {
+			if (Card.rankOf(cursor.element(0)) == Card.rankOf(cursor.element(1))) {
 				points += POINTS_FOR_PAIRS;
 			}
 		}
@@ -95,37 +115,60 @@ public class Calcultor {
 	
 	/**Calculate the points contributed by "Runs" rule
 	 * 
-	 * @param handCard a Hand type pramater representing a set of cards in hand.
+	 * @param cards a mask representing a set of cards in hand, including the start card.
 	 * @return a int type representing the points contributed by "Runs"
 	 */
-	private static int pointsForRuns(Hand hand) {
+	private static int pointsForRuns(long cards) {
 		// start with testing wether all cards in hand plus start card
 		// is a Run. If so, this is the longest run and there is no need 
 		// to test other cases
-		if (hand.allInOrder()) return POINTS_FOR_PAIRS_CASE_1;
+		if (allInOrder(cards)) return POINTS_FOR_PAIRS_CASE_1;
 		
-		// create a list to store all possible combination with 4 cards each.
-		List<Hand> list = Calcultor.combination(hand, 4);
+		Combinations cursor = CURSOR.get();
 		
 		// testing wether any four of all the cards can form a Run
 		int points = 0;
-		for (Hand combination : list) {
-			if (combination.allInOrder()) {
+		for (cursor.reset(cards, 4); cursor.next(); ) {
+			if (allInOrder(cursor.mask())) {
 				points += POINTS_FOR_PAIRS_CASE_2;
 			}
 		}
 		if (points != 0) return points;
 		
 		// testing wether any three of all the cards can form a Run
-		list = Calcultor.combination(hand, 3);
-		for (Hand combination : list) {
-			if (combination.allInOrder()) {
+		for (cursor.reset(cards, 3); cursor.next(); ) {
+			if (allInOrder(cursor.mask())) {
 				points += POINTS_FOR_PAIRS_CASE_3;
 			}
 		}
 		
 		return points;
 	}
+	
+	
+	/** calculate total value of a set of cards, used for counting the points for 15S. */
+	private static int value(long cards) {
+		int sum = 0;
+		for (; cards != 0; cards &= cards - 1) {
+			sum += Card.valueOf(Long.numberOfTrailingZeros(cards));
+		}
+		return sum;
+	}
+	
+	
+	/** test whether a set of cards can form a Runs. The cards in a mask are
+	 *  already sorted by rank, so each one should be one rank above the last.
+	 */
+	private static boolean allInOrder(long cards) {
+		int last = -2;
+		for (; cards != 0; cards &= cards - 1) {
+			int rank = Card.rankOf(Long.numberOfTrailingZeros(cards));
+			if (last >= 0 && rank != last + 1)
+				return false;
+			last = rank;
+		}
+		return true;
+	}
 
 	
 	/**This method computes all the possible combinations of cards from the
@@ -135,8 +178,16 @@ public class Calcultor {
 	 * @return a set of the subarrays of the input.
 	 */
 	public static List<Hand> combination(Hand hand){
+		long start = Metrics.ENABLED ? System.nanoTime() : 0;
+		long startBytes = Metrics.ENABLED ? Metrics.allocatedBytes() : 0;
+		
 		List<Hand> list = new List<Hand>(); //create a list data structure to store combinations.
-		match(list, hand.clone());
+		for (int num = 0; num <= hand.getNumCard(); num++) {
+			match(list, hand, num);
+		}
+		
+		if (Metrics.ENABLED)
+			Metrics.record(Metrics.Probe.COMBINATION, start, startBytes);
 		return list;
 	}
 	
@@ -149,59 +200,209 @@ public class Calcultor {
 	 * @return a set of the subarrays of the input.
 	 */
 	public static List<Hand> combination(Hand hand, int num){
-		//create a List data structure to store combinations.
-		List<Hand> tempList = new List<Hand>(); 
-		
-		match(tempList, hand.clone());
+		long start = Metrics.ENABLED ? System.nanoTime() : 0;
+		long startBytes = Metrics.ENABLED ? Metrics.allocatedBytes() : 0;
 		
-		//create a List data structure to store the final results.
+		//create a List data structure to store combinations.
 		List<Hand> list = new List<Hand>();
+		match(list, hand, num);
 		
-		//find all the combinations with 4 elements in it.
-		for (Hand item : tempList) {
-			if (item.getNumCard() == num)
-				list.add(item);
-		}
+		if (Metrics.ENABLED)
+			Metrics.record(Metrics.Probe.COMBINATION, start, startBytes);
 		return list;
 	}
 	
 	
-	/** This method computes all the possible combinations from an array of cards.
+	/** This method adds all the combinations of a certain number of cards from a hand
+	 *  to a list, each of them keeping the cards in the same order as in hand.
 	 * 
 	 * @param list a list data structure used to store all generated possible combinations.
 	 * @param hand a hand of cards that need to get the combinations of.
+	 * @param num the number of card in each combinations.
 	 */
-	private static void match(List<Hand> list, Hand hand) {
+	private static void match(List<Hand> list, Hand hand, int num) {
 		
-		//if the hand is empty, add this empty hand to list and return.
-		if (hand.isEmpty()) {
-			list.add(new Hand());
-			return;
-		}
+		// go through the positions of the cards in hand rather than the cards
+		Combinations cursor = new Combinations();
+		int[] cards = new int[num];
 		
-		//remove one card from hand and record the card.
-		Card discardedCard = hand.discardOneCard();
-		
-		// recursively invoke itself until the hand is empty
-		match(list, hand);
-		
-		//add the removed card to all the hands in list to for new combinations and 
-		//add these newly generated combinations back to list.
-		for (Hand item : list) {
-			list.add(item.addCard(discardedCard));
-		}	
+		for (cursor.reset((1L << hand.getNumCard()) - 1, num); cursor.next(); ) {
+			for (int i = 0; i < num; i++) {
+				cards[i] = hand.cardAt(cursor.element(i));
+			}
+			list.add(new Hand(cards, num));
+		}
 	}	
 
 	
+	/** This method is used to sum up the points contributed by the rules of
+	 *  15s, Pairs and Runs, which only depend on the ranks of the cards.
+	 * 
+	 * @param cards a mask representing a set of cards including the start card.
+	 * @return a int type representing the points contributed by "15s", "Pairs" and "Runs"
+	 */
+	static int rankPoints(long cards) {
+		if (Metrics.ENABLED)
+			return timedRankPoints(cards);
+		
+		return pointsFor15S(cards) +
+			   pointsForPairs(cards) +
+			   pointsForRuns(cards);
+	}
+	
+	
 	/** This method is used to sum up all the points a hand of cards can get */
 	public static int totalPoints(Hand hand, Card startCard) {
+		return totalPoints(hand.mask(), startCard.id());
+	}
+	
+	
+	/** This method is used to sum up all the points a hand of cards can get
+	 *  without creating any object.
+	 * 
+	 * @param hand a mask with bit Card.id() set for every card in hand.
+	 * @param startCard the index of the start card.
+	 * @return the total points.
+	 */
+	public static int totalPoints(long hand, int startCard) {
+		if (Metrics.ENABLED)
+			return timedTotalPoints(hand, startCard);
+		
 		// when counting points for 15S, Pairs and Runs start card is deemed as one of card in hand.
-		Hand temp = hand.addCard(startCard);
+		long cards = hand | 1L << startCard;
+		int points = pointsForNob(hand, startCard) + pointsForFlushes(hand, startCard);
+		
+		// a hand of four cards is looked up in the precomputed table.
+		if (Long.bitCount(cards) == ScoreTable.NUM_CARD)
+			return points + ScoreTable.points(cards);
+		
+		return points + rankPoints(cards);
+	}
+	
+	
+	/** This method is used to sum up the total points of a hand with each of
+	 *  some start cards in turn, the same as adding up totalPoints() for each
+	 *  of them.
+	 *
+	 *  15s, Pairs and Runs only depend on the rank of the start card, so they
+	 *  are counted once for each rank and weighted by the number of start cards
+	 *  of that rank. Flushes and "One for his nob" only depend on its suit, so
+	 *  they are counted once for each suit in the same way.
+	 *
+	 * @param hand a mask with bit Card.id() set for every card in hand.
+	 * @param starters a mask of the start cards, none of them in hand.
+	 * @return the sum of the total points.
+	 */
+	public static int sumPoints(long hand, long starters) {
+		long start = Metrics.ENABLED ? System.nanoTime() : 0;
+		int sum = 0;
+		for (int rank = 0; rank < Card.NUM_RANK; rank++) {
+			long ofRank = starters >>> rank * Card.NUM_SUIT & 0xF;
+			if (ofRank == 0)
+				continue;
+			long cards = hand | 1L << rank * Card.NUM_SUIT + Long.numberOfTrailingZeros(ofRank);
+			int points = Long.bitCount(cards) == ScoreTable.NUM_CARD ? ScoreTable.points(cards) : rankPoints(cards);
+			sum += Long.bitCount(ofRank) * points;
+		}
+		for (int suit = 0; suit < Card.NUM_SUIT; suit++) {
+			long ofSuit = starters & Card.suitMask(suit);
+			if (ofSuit == 0)
+				continue;
+			int startCard = Long.numberOfTrailingZeros(ofSuit);
+			sum += Long.bitCount(ofSuit) * (pointsForNob(hand, startCard) + pointsForFlushes(hand, startCard));
+		}
+		if (Metrics.ENABLED)
+			Metrics.record(Metrics.Probe.SUM_POINTS, start);
+		return sum;
+	}
+
+
+	/** This method is used to sum up all the points the crib can get
+	 *  without creating any object.
+	 * 
+	 * @param crib a mask with bit Card.id() set for every card in the crib.
+	 * @param startCard the index of the start card.
+	 * @return the total points.
+	 */
+	public static int cribPoints(long crib, int startCard) {
+		if (Metrics.ENABLED)
+			return timedCribPoints(crib, startCard);
+		
+		long cards = crib | 1L << startCard;
+		int points = pointsForNob(crib, startCard) + pointsForCribFlushes(crib, startCard);
+		
+		if (Long.bitCount(cards) == ScoreTable.NUM_CARD)
+			return points + ScoreTable.points(cards);
+		
+		return points + rankPoints(cards);
+	}
+	
+	
+	/* The methods below do the same as those above while counting the calls
+	 * and the time of every rule in Metrics. They are only used when the
+	 * counting is on, so the methods above stay as fast as they were.
+	 */
+	
+	private static int timedRankPoints(long cards) {
+		long start = System.nanoTime();
+		int points = pointsFor15S(cards);
+		Metrics.record(Metrics.Probe.FIFTEENS, start);
 		
-		return pointsForNob(hand, startCard) +
-			   pointsForFlushes(hand, startCard) +
-			   pointsFor15S(temp) +
-			   pointsForPairs(temp) +
-			   pointsForRuns(temp);
+		start = System.nanoTime();
+		points += pointsForPairs(cards);
+		Metrics.record(Metrics.Probe.PAIRS, start);
+		
+		start = System.nanoTime();
+		points += pointsForRuns(cards);
+		Metrics.record(Metrics.Probe.RUNS, start);
+		return points;
+	}
+	
+	
+	private static int timedTotalPoints(long hand, int startCard) {
+		long total = System.nanoTime();
+		long cards = hand | 1L << startCard;
+		
+		long start = System.nanoTime();
+		int points = pointsForNob(hand, startCard);
+		Metrics.record(Metrics.Probe.NOB, start);
+		
+		start = System.nanoTime();
+		points += pointsForFlushes(hand, startCard);
+		Metrics.record(Metrics.Probe.FLUSHES, start);
+		
+		points += timedRankPart(cards);
+		Metrics.record(Metrics.Probe.TOTAL_POINTS, total);
+		return points;
+	}
+	
+	
+	private static int timedCribPoints(long crib, int startCard) {
+		long total = System.nanoTime();
+		long cards = crib | 1L << startCard;
+		
+		long start = System.nanoTime();
+		int points = pointsForNob(crib, startCard);
+		Metrics.record(Metrics.Probe.NOB, start);
+		
+		start = System.nanoTime();
+		points += pointsForCribFlushes(crib, startCard);
+		Metrics.record(Metrics.Probe.CRIB_FLUSHES, start);
+		
+		points += timedRankPart(cards);
+		Metrics.record(Metrics.Probe.CRIB_POINTS, total);
+		return points;
+	}
+	
+	
+	/** the points of 15s, Pairs and Runs, from the table for five cards */
+	private static int timedRankPart(long cards) {
+		if (Long.bitCount(cards) != ScoreTable.NUM_CARD)
+			return timedRankPoints(cards);
+		
+		long start = System.nanoTime();
+		int points = ScoreTable.points(cards);
+		Metrics.record(Metrics.Probe.SCORE_TABLE, start);
+		return points;
 	}
 }
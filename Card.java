@@ -5,16 +5,31 @@
  *  and also checks whteher input rank and suit are valid for a card.
  *  It also provide a static method to generate all the 52 cards can 
  *  be used in a game.  
+ *
+ *  A card never changes, so the 52 cards are made once and shared: Card.of()
+ *  gives the card with an index, and clone() gives the card itself.
  * 
  * @author Dongsheng Jiang
  * @login_id DONGSHENGJ
  */
 
+import java.util.Arrays;
+
 public class Card {
-	// a single character representing a possible rank.
-	private char rank;	
-	// a single character representing a possible suit.
-	private char suit;
+	// number of cards in a full deck.
+	public static final int NUM_CARD = 52;
+	// number of different ranks and suits.
+	public static final int NUM_RANK = 13;
+	public static final int NUM_SUIT = 4;
+	// a mask with every card in a full deck.
+	public static final long FULL_DECK = (1L << NUM_CARD) - 1;
+	// a mask with every club, the cards of another suit are the same mask shifted by the suit.
+	private static final long CLUBS = FULL_DECK / 0xF;
+	
+	// the index of this card from 0 to 51, which is rank * 4 + suit so that 
+	// the cards are in the same order as fullDeck(). A set of cards can be 
+	// represented by a long with bit id set for every card in it.
+	private final int id;
 	
 	
 	// enumerate all the possible ranks and provide some function
@@ -49,21 +64,6 @@ public class Card {
 			return rank;
 		}
 			
-		/** decide whether a certain character can be represented by Rank or not.
-		 * 
-		 *  @param name a single character that need to be desided whether it's valid.
-		 *  @return true if name is a valid rank, false if not.
-		 */
-		public static boolean contains(char name) {
-			char[] ranks = allRank();
-			for(char r : ranks) {
-				if(r == name) {
-					return true;
-				}
-			}
-			return false;
-		}
-			
 		/** @return all the possible ranks */
 		public static char[] allRank() {
 			char[] allRank = new char[13];
@@ -81,17 +81,6 @@ public class Card {
 	private static enum Suit{
 		C, D, H, S;
 			
-		// decide whether a certain character can be represented by Suit or not.
-		public static boolean contains(char name) {
-			char[] symbols = allSuit();
-			for(char s : symbols) {
-				if(s == name) {
-					return true;
-				}
-			}
-			return false;
-		}
-			
 		/** @return all the possible suits */
 		public static char[] allSuit() {
 			char[] allSuit = new char[4];
@@ -104,17 +93,128 @@ public class Card {
 	}
 
 	
-	/** Construct a card. */
+	// characters of all the ranks and suits, indexed by rank and suit.
+	private static final char[] RANKS = Rank.allRank();
+	private static final char[] SUITS = Suit.allSuit();
+	// index of the rank and suit of every ASCII character, -1 if it is not one.
+	private static final int[] RANK_INDEX = indexTable(RANKS);
+	private static final int[] SUIT_INDEX = indexTable(SUITS);
+	// the 52 cards, indexed by id.
+	private static final Card[] DECK = makeDeck();
+	
+	
+	/** Construct a card. Card.of(rank, symbol) gives the same card without making a new one. */
 	public Card(char rank, char symbol) {
-		// check if input rank and suit is valid.
-		if(Rank.contains(rank) && Suit.contains(symbol)) {
-			this.rank = rank;
-			this.suit = symbol;
-		}
-		else {
+		this.id = parse(rank, symbol);
+	}
+	
+	
+	/** Construct a card from its index. */
+	private Card(int id) {
+		this.id = id;
+	}
+	
+	
+	/** get the card with a certain index.
+	 * 
+	 * @param id the index of the card from 0 to 51.
+	 * @return a Card type object representing the card.
+	 */
+	public static Card of(int id) {
+		if (id < 0 || id >= NUM_CARD)
+			throw new IllegalArgumentException(id + " is an invalid card index.\n");
+		return DECK[id];
+	}
+	
+	
+	/** get the card with a certain rank and suit, checking that they are valid.
+	 * 
+	 * @param rank a single character representing the rank.
+	 * @param symbol a single character representing the suit.
+	 * @return a Card type object representing the card.
+	 */
+	public static Card of(char rank, char symbol) {
+		return DECK[parse(rank, symbol)];
+	}
+	
+	
+	/** find the index of a card without creating a Card object.
+	 * 
+	 * @param rank a single character representing the rank.
+	 * @param symbol a single character representing the suit.
+	 * @return the index of the card from 0 to 51, -1 if rank or suit is invalid.
+	 */
+	public static int id(char rank, char symbol) {
+		if (rank >= RANK_INDEX.length || symbol >= SUIT_INDEX.length)
+			return -1;
+		int r = RANK_INDEX[rank];
+		int s = SUIT_INDEX[symbol];
+		if (r < 0 || s < 0)
+			return -1;
+		return r * NUM_SUIT + s;
+	}
+	
+	
+	/** find the index of a card and check whether input rank and suit are valid.
+	 * 
+	 * @param rank a single character representing the rank.
+	 * @param symbol a single character representing the suit.
+	 * @return the index of the card from 0 to 51.
+	 */
+	public static int parse(char rank, char symbol) {
+		int id = id(rank, symbol);
+		if (id < 0) {
 			throw new IllegalArgumentException(""+ rank + symbol + " is an invalid input.\n"
 											+ "Please check and try again\n");
 		}
+		return id;
+	}
+	
+	
+	/** @return a table giving the position of every ASCII character in names, -1 if absent */
+	private static int[] indexTable(char[] names) {
+		int[] table = new int[128];
+		Arrays.fill(table, -1);
+		for (int i = 0; i < names.length; i++) {
+			table[names[i]] = i;
+		}
+		return table;
+	}
+	
+	
+	/** @return the rank of a card index, from 0 (Ace) to 12 (King) */
+	public static int rankOf(int id) {
+		return id >>> 2;
+	}
+	
+	
+	/** @return the suit of a card index, from 0 to 3 in the order C, D, H, S */
+	public static int suitOf(int id) {
+		return id & 3;
+	}
+	
+	
+	/** @return the value of a card index used to count 15s in a game */
+	public static int valueOf(int id) {
+		return Math.min(rankOf(id) + 1, 10);
+	}
+	
+	
+	/** @return a mask with every card of a suit, from 0 to 3 in the order C, D, H, S */
+	public static long suitMask(int suit) {
+		return CLUBS << suit;
+	}
+	
+	
+	/** @return the index of the card from 0 to 51 */
+	public int id() {
+		return id;
+	}
+	
+	
+	/** @return a mask with only the bit of this card set */
+	public long mask() {
+		return 1L << id;
 	}
 	
 	
@@ -123,11 +223,7 @@ public class Card {
 	  * @return the numeric value for a rank.
 	  */
 	public int value() {
-		if (rank == 'A') return 1;
-		else if (rank == 'T' || rank == 'J' || rank == 'Q' || rank == 'K') 
-			return 10;
-		else 
-			return rank - '0'; 
+		return valueOf(id);
 	}
 	
 	
@@ -140,7 +236,7 @@ public class Card {
 		if(otherCard == null)
 			return false;
 		else {
-			return (rank == otherCard.rank);
+			return rankOf(id) == rankOf(otherCard.id);
 		}
 	}
 	
@@ -154,44 +250,52 @@ public class Card {
 		if(otherCard == null)
 			return false;
 		else {
-			return (suit == otherCard.suit);
+			return suitOf(id) == suitOf(otherCard.id);
 		}
 	}
 
 	
 	/** @return the rank */
 	public char getRank() {
-		return rank;
+		return rankChar(id);
 	}
 	
 	
 	/** @return the suit */
 	public char getSuit() {
-		return suit;
+		return suitChar(id);
+	}
+	
+	
+	/** @return the character representing the rank of a card index */
+	public static char rankChar(int id) {
+		return RANKS[rankOf(id)];
+	}
+	
+	
+	/** @return the character representing the suit of a card index */
+	public static char suitChar(int id) {
+		return SUITS[suitOf(id)];
 	}
 	
 	
 	/** @return the rank order used for counting points of the rule of Runs*/
 	public int order() {
-		if (rank == 'A') return 1;
-		else if (rank == 'T') return 10;
-		else if (rank == 'J') return 11;
-		else if (rank == 'Q') return 12;
-		else if (rank == 'K') return 13;
-		else return rank - '0'; 
+		return rankOf(id) + 1;
 	}
 	
 	
-	/** @return all the 52 cards can be used in a game*/
+	/** @return all the 52 cards can be used in a game, in a new array of the shared cards*/
 	public static Card[] fullDeck() {
-		int numCard = Rank.allRank().length * Suit.allSuit().length;
-		Card[] deck = new Card[numCard];
-		int h = 0;
-		for (char i : Rank.allRank()) {
-			for (char j : Suit.allSuit()) {
-				deck[h] = new Card(i, j);
-				h ++;
-			}
+		return DECK.clone();
+	}
+	
+	
+	/** make the 52 cards once. */
+	private static Card[] makeDeck() {
+		Card[] deck = new Card[NUM_CARD];
+		for (int h = 0; h < NUM_CARD; h++) {
+			deck[h] = new Card(h);
 		}
 		return deck;
 	}
@@ -199,13 +303,14 @@ public class Card {
 	
 	@Override
 	public String toString() {
-		return "" + rank + suit;
+		return "" + getRank() + getSuit();
 	}
 	
 	
+	/** @return this card, as a card never changes */
 	@Override
 	public Card clone() {
-		return new Card(rank, suit);
+		return this;
 	}
 	
 	
@@ -218,8 +323,14 @@ public class Card {
 		}
 		else {
 			Card otherCard = (Card) other;
-			return (rankEquals(otherCard) && suitEquals(otherCard));
+			return id == otherCard.id;
 		}
 	}
+	
+	
+	@Override
+	public int hashCode() {
+		return id;
+	}
 
 }
@@ -0,0 +1,180 @@
+/** This class is used to go through all the combinations of a certain number
+ *  of elements from a set, one at a time, without building a list of them.
+ *
+ *  The set is a mask, each set bit being an element, so it can be a set of
+ *  cards with bit Card.id() set for each card, or a set of positions in a
+ *  hand. The combinations come in lexicographic order of the positions of
+ *  their elements, and the same object can be reset and used again, so going
+ *  through C(n, k) combinations creates no object at all.
+ *
+ *  usage:
+ *      Combinations cursor = new Combinations();
+ *      for (cursor.reset(cards, 2); cursor.next(); ) {
+ *          long pair = cursor.mask();
+ *      }
+ *
+ * @author Dongsheng Jiang
+ * @login_id DONGSHENGJ
+ */
+
+public class Combinations {
+
+	// binomial coefficients C(n, k) for n and k up to 64
+	private static final long[][] BINOMIAL = binomialTable(Long.SIZE);
+
+
+	// the elements of the set, in ascending order
+	private final int[] elements = new int[Long.SIZE];
+	// the positions in elements of the chosen elements, in ascending order
+	private final int[] chosen = new int[Long.SIZE];
+	// number of elements in the set and in each combination
+	private int n = 0;
+	private int k = 0;
+	// the current combination
+	private long mask = 0;
+	// whether next() has not been called since the last reset
+	private boolean first = true;
+
+
+	/** start again with a new set.
+	 *
+	 * @param set a mask with a bit set for each element.
+	 * @param k the number of elements in each combination.
+	 * @return this object.
+	 */
+	public Combinations reset(long set, int k) {
+		if (k < 0)
+			throw new IllegalArgumentException("The number of elements should not be negative\n");
+		n = 0;
+		for (; set != 0; set &= set - 1) {
+			elements[n++] = Long.numberOfTrailingZeros(set);
+		}
+		this.k = k;
+		this.mask = 0;
+		this.first = true;
+		return this;
+	}
+
+
+	/** move to the next combination.
+	 *
+	 * @return true if there is one, false if all of them have been gone through.
+	 */
+	public boolean next() {
+		if (first) {
+			first = false;
+			if (k > n)
+				return false;
+			for (int i = 0; i < k; i++) {
+				chosen[i] = i;
+				mask |= 1L << elements[i];
+			}
+			return true;
+		}
+
+		// find the last element that can still move to the right
+		int i = k - 1;
+		while (i >= 0 && chosen[i] == n - k + i) {
+			i--;
+		}
+		if (i < 0)
+			return false;
+
+		// move it, and put all the elements after it right next to it
+		mask &= ~(1L << elements[chosen[i]]);
+		chosen[i]++;
+		mask |= 1L << elements[chosen[i]];
+		for (int j = i + 1; j < k; j++) {
+			mask &= ~(1L << elements[chosen[j]]);
+			chosen[j] = chosen[j - 1] + 1;
+			mask |= 1L << elements[chosen[j]];
+		}
+		return true;
+	}
+
+
+	/** @return the current combination as a mask */
+	public long mask() {
+		return mask;
+	}
+
+
+	/** @return the i-th smallest element of the current combination */
+	public int element(int i) {
+		return elements[chosen[i]];
+	}
+
+
+	/** @return the number of elements in each combination */
+	public int size() {
+		return k;
+	}
+
+
+	/** @return the number of combinations of k elements from n, for n up to 64 */
+	public static long binomial(int n, int k) {
+		if (k < 0 || k > n)
+			return 0;
+		return BINOMIAL[n][k];
+	}
+
+
+	/** find the position of a set among all the sets of the same size, in the
+	 *  order of the combinatorial number system (colexicographic order).
+	 *
+	 * @param set a mask with a bit set for each element.
+	 * @return a unique index from 0 to C(64, k) - 1, k being the size of the set.
+	 */
+	public static long index(long set) {
+		long index = 0;
+		for (int i = 1; set != 0; set &= set - 1, i++) {
+			index += BINOMIAL[Long.numberOfTrailingZeros(set)][i];
+		}
+		return index;
+	}
+
+
+	/** find the set at some position among all the sets of the same size, the
+	 *  opposite of index().
+	 *
+	 * @param index the position of the set, from 0 to C(64, k) - 1.
+	 * @param k the number of elements in the set.
+	 * @return a mask with a bit set for each element.
+	 */
+	public static long set(long index, int k) {
+		long set = 0;
+		int element = Long.SIZE - 1;
+		for (int i = k; i > 0; i--) {
+			// the greatest element left whose coefficient is not over the index
+			while (BINOMIAL[element][i] > index) {
+				element--;
+			}
+			index -= BINOMIAL[element][i];
+			set |= 1L << element--;
+		}
+		return set;
+	}
+
+
+	/** @return the set of the same size after a set in the order of index(),
+	 *  which is the next greater number with as many bits set
+	 */
+	public static long nextSet(long set) {
+		long lowest = set & -set;
+		long ripple = set + lowest;
+		return ripple | ((set ^ ripple) >>> 2) / lowest;
+	}
+
+
+	/** compute the binomial coefficients C(n, k) for all k <= n <= max. */
+	private static long[][] binomialTable(int max) {
+		long[][] c = new long[max + 1][max + 1];
+		for (int n = 0; n <= max; n++) {
+			c[n][0] = 1;
+			for (int k = 1; k <= n; k++) {
+				c[n][k] = c[n - 1][k - 1] + c[n - 1][k];
+			}
+		}
+		return c;
+	}
+}
@@ -0,0 +1,104 @@
+/** This class is used to bound the points of a crib from the two cards a
+ *  player discards and the start card, before the two cards of the opponent
+ *  are known.
+ *
+ *  The points of 15s, Pairs and Runs only depend on the ranks, so the least
+ *  and the greatest of them over every pair of ranks the opponent can discard
+ *  are found once for every three ranks, in tables of 13 * 13 * 13 entries.
+ *  The flush and the nob are added to the greatest when they are possible.
+ *  The ranks left in the deck are not looked at, so the bounds hold for any
+ *  dead cards.
+ *
+ * @author Dongsheng Jiang
+ * @login_id DONGSHENGJ
+ */
+
+public class CribBound {
+
+	// number of cards of a rank
+	private static final int NUM_PER_RANK = Card.NUM_SUIT;
+	// the greatest points of the flush and of the nob in a crib
+	private static final int MAX_FLUSH = 5;
+	private static final int MAX_NOB = 1;
+
+	// the least and the greatest points of 15s, Pairs and Runs for the ranks
+	// of two discards and of the start card, at (r1 * 13 + r2) * 13 + rs
+	private static final byte[] MIN = new byte[Card.NUM_RANK * Card.NUM_RANK * Card.NUM_RANK];
+	private static final byte[] MAX = new byte[Card.NUM_RANK * Card.NUM_RANK * Card.NUM_RANK];
+
+	static {
+		int[] ranks = new int[ScoreTable.NUM_CARD];
+		for (int r1 = 0; r1 < Card.NUM_RANK; r1++)
+			for (int r2 = 0; r2 < Card.NUM_RANK; r2++)
+				for (int rs = 0; rs < Card.NUM_RANK; rs++) {
+					int min = Integer.MAX_VALUE;
+					int max = 0;
+					for (int x = 0; x < Card.NUM_RANK; x++)
+						for (int y = x; y < Card.NUM_RANK; y++) {
+							ranks[0] = r1;
+							ranks[1] = r2;
+							ranks[2] = rs;
+							ranks[3] = x;
+							ranks[4] = y;
+							long cards = cards(ranks);
+							if (cards == 0) continue;
+							int points = ScoreTable.points(cards);
+							min = Math.min(min, points);
+							max = Math.max(max, points);
+						}
+					int i = index(r1, r2, rs);
+					MIN[i] = (byte) min;
+					MAX[i] = (byte) max;
+				}
+	}
+
+
+	/** @return the least points of a crib holding two discards, with a start card */
+	public static int min(long discards, int startCard) {
+		return MIN[index(discards, startCard)];
+	}
+
+
+	/** @return the greatest points of a crib holding two discards, with a start card */
+	public static int max(long discards, int startCard) {
+		int points = MAX[index(discards, startCard)] + MAX_NOB;
+		// a flush needs the discards and the start card in the same suit
+		int first = Long.numberOfTrailingZeros(discards);
+		int second = 63 - Long.numberOfLeadingZeros(discards);
+		if (Card.suitOf(first) == Card.suitOf(startCard) && Card.suitOf(second) == Card.suitOf(startCard))
+			points += MAX_FLUSH;
+		return points;
+	}
+
+
+	private static int index(long discards, int startCard) {
+		if (Long.bitCount(discards) != 2)
+			throw new IllegalArgumentException("A player discards 2 cards to the crib\n");
+		int first = Long.numberOfTrailingZeros(discards);
+		int second = 63 - Long.numberOfLeadingZeros(discards);
+		return index(Card.rankOf(first), Card.rankOf(second), Card.rankOf(startCard));
+	}
+
+
+	private static int index(int r1, int r2, int rs) {
+		return (r1 * Card.NUM_RANK + r2) * Card.NUM_RANK + rs;
+	}
+
+
+	/** @return a mask of cards of some ranks, each in another suit, 0 if a rank
+	 *  is used more than four times
+	 */
+	private static long cards(int[] ranks) {
+		long cards = 0;
+		for (int rank : ranks) {
+			int suit = 0;
+			while (suit < NUM_PER_RANK && (cards & 1L << rank * Card.NUM_SUIT + suit) != 0) {
+				suit++;
+			}
+			if (suit == NUM_PER_RANK)
+				return 0;
+			cards |= 1L << rank * Card.NUM_SUIT + suit;
+		}
+		return cards;
+	}
+}
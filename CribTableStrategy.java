@@ -0,0 +1,75 @@
+/** This class is used to let a player of GameSimulator keep the cards with
+ *  the greatest expected points in hand plus an estimate of the points they
+ *  give to the crib, added for the dealer and taken away for the pone.
+ *
+ *  The estimate only depends on the ranks of the two discards. For every pair
+ *  of ranks, the crib is averaged over every other two cards and start card
+ *  from the 50 cards left, with the discards taken of different suits, which
+ *  is C(50, 2) * 48 = 58800 cribs. The 91 pairs are counted once, when this
+ *  class is loaded, so a choice costs about as much as without the crib.
+ *
+ * @author Dongsheng Jiang
+ * @login_id DONGSHENGJ
+ */
+
+public class CribTableStrategy implements Strategy {
+
+	// the expected points of the crib for every pair of ranks discarded
+	private static final double[][] CRIB = build();
+
+
+	/** average the crib for every pair of ranks discarded. */
+	private static double[][] build() {
+		double[][] crib = new double[Card.NUM_RANK][Card.NUM_RANK];
+		for (int r1 = 0; r1 < Card.NUM_RANK; r1++) {
+			for (int r2 = r1; r2 < Card.NUM_RANK; r2++) {
+				long discards = 1L << r1 * Card.NUM_SUIT | 1L << r2 * Card.NUM_SUIT + 1;
+				long rest = Card.FULL_DECK & ~discards;
+				long sum = 0;
+				long numCrib = 0;
+				for (long first = rest; first != 0; first &= first - 1) {
+					long a = first & -first;
+					for (long second = first & first - 1; second != 0; second &= second - 1) {
+						long cards = discards | a | second & -second;
+						for (long starters = rest & ~cards; starters != 0; starters &= starters - 1) {
+							sum += Calcultor.cribPoints(cards, Long.numberOfTrailingZeros(starters));
+							numCrib++;
+						}
+					}
+				}
+				crib[r1][r2] = crib[r2][r1] = (double) sum / numCrib;
+			}
+		}
+		return crib;
+	}
+
+
+	/** @return the expected points of the crib for two ranks discarded */
+	public static double crib(int rank1, int rank2) {
+		return CRIB[rank1][rank2];
+	}
+
+
+	@Override
+	public long discard(long deal, boolean dealer) {
+		long starters = Card.FULL_DECK & ~deal;
+		double numStarter = Long.bitCount(starters);
+		int sign = dealer ? 1 : -1;
+		long best = 0;
+		double bestScore = Double.NEGATIVE_INFINITY;
+		for (long first = deal; first != 0; first &= first - 1) {
+			int d1 = Long.numberOfTrailingZeros(first);
+			for (long second = first & first - 1; second != 0; second &= second - 1) {
+				int d2 = Long.numberOfTrailingZeros(second);
+				long keep = deal & ~(1L << d1) & ~(1L << d2);
+				double score = Calcultor.sumPoints(keep, starters) / numStarter
+						+ sign * CRIB[Card.rankOf(d1)][Card.rankOf(d2)];
+				if (score > bestScore) {
+					best = keep;
+					bestScore = score;
+				}
+			}
+		}
+		return best;
+	}
+}
@@ -0,0 +1,96 @@
+/** This class is used to hold the cards to keep found by ProgressiveSelector
+ *  at some point of its work, with an estimate of their expected score and
+ *  bounds around it.
+ *
+ *  Until every start card is scored, the bounds are those of a confidence
+ *  interval of about 95% from the start cards scored so far, narrowed to the
+ *  bounds that hold for sure (see CribBound). Once the estimate is exact,
+ *  both bounds are the expected score.
+ *
+ * @author Dongsheng Jiang
+ * @login_id DONGSHENGJ
+ */
+
+public class Estimate {
+
+	private final Hand keep;
+	private final double expectedScore;
+	private final double lower;
+	private final double upper;
+	private final boolean exact;
+	private final int numScored;
+	private final int numStarter;
+
+
+	/** Construct an Estimate.
+	 *
+	 * @param keep the cards kept.
+	 * @param expectedScore the estimate of their expected score.
+	 * @param lower the lower bound of the expected score.
+	 * @param upper the upper bound of the expected score.
+	 * @param exact whether the expected score is exact.
+	 * @param numScored the number of start cards scored so far.
+	 * @param numStarter the number of start cards.
+	 */
+	public Estimate(Hand keep, double expectedScore, double lower, double upper, boolean exact,
+			int numScored, int numStarter) {
+		this.keep = keep;
+		this.expectedScore = expectedScore;
+		this.lower = lower;
+		this.upper = upper;
+		this.exact = exact;
+		this.numScored = numScored;
+		this.numStarter = numStarter;
+	}
+
+
+	/** @return the cards kept, in the same order as in the hand dealt */
+	public Hand keep() {
+		return keep;
+	}
+
+
+	/** @return the estimate of the expected score */
+	public double expectedScore() {
+		return expectedScore;
+	}
+
+
+	/** @return the lower bound of the expected score */
+	public double lower() {
+		return lower;
+	}
+
+
+	/** @return the upper bound of the expected score */
+	public double upper() {
+		return upper;
+	}
+
+
+	/** @return whether the expected score is exact, and the same cards as Selector chosen */
+	public boolean exact() {
+		return exact;
+	}
+
+
+	/** @return the number of start cards scored so far */
+	public int numScored() {
+		return numScored;
+	}
+
+
+	/** @return the number of start cards */
+	public int numStarter() {
+		return numStarter;
+	}
+
+
+	@Override
+	public String toString() {
+		if (exact)
+			return keep + String.format(" %.4f", expectedScore);
+		return keep + String.format(" %.4f [%.4f, %.4f] %d/%d start cards", expectedScore, lower, upper,
+				numScored, numStarter);
+	}
+}
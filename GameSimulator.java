@@ -0,0 +1,379 @@
+/** This class is used to compare two strategies by playing many games of
+ *  cribbage to 121 between them.
+ *
+ *  Every deal goes as in a real game: 6 cards are dealt to each player, each
+ *  of them puts 2 in the crib of the dealer, the start card is cut and the
+ *  dealer scores 2 for his heels if it is a Jack. Then the play, where the
+ *  pone lays the first card, and the show, where the pone counts his hand
+ *  first, then the dealer his hand and his crib. The points are counted by
+ *  Pegging and Calcultor, and a game ends as soon as a player reaches 121,
+ *  the loser being skunked if he has less than 91. The deal goes to the
+ *  other player after every hand, and the first dealer is drawn at random.
+ *
+ *  The games are split between the threads of a ForkJoinPool as in
+ *  PeggingSimulator. Every task gets its own SplittableRandom, split from the
+ *  one of the task that made it, and its own Strategy objects, and the counts
+ *  of the tasks are added up as they are joined, so no thread waits for a
+ *  lock and the same seed gives the same results with any number of threads.
+ *
+ *  usage: java GameSimulator [--games n] [--threads n] [--seed n] [strategy strategy]
+ *
+ *  where a strategy is "average" (the choice of SelectHand, not counting the
+ *  crib), "crib" (counting the crib exactly, which is slow) or "crib-table"
+ *  (counting the crib by the ranks discarded, see CribTableStrategy).
+ *
+ * @author Dongsheng Jiang
+ * @login_id DONGSHENGJ
+ */
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Supplier;
+
+public class GameSimulator {
+
+	// the score that wins a game
+	public static final int WINNING_SCORE = 121;
+	// a loser with less points than this is skunked
+	private static final int SKUNK_SCORE = 91;
+	// the points of the dealer when the start card is a Jack
+	private static final int POINTS_FOR_HEELS = 2;
+	private static final char RANK_FOR_HEELS = 'J';
+	// the points for the last card played, and for a go
+	private static final int POINTS_FOR_LAST = 1;
+	// number of games played by one task before it stops splitting the work
+	private static final int TASK_SIZE = 1 << 8;
+
+	// the counts kept for every simulation
+	private static final int WINS = 0;
+	private static final int SKUNKS = 2;
+	private static final int POINTS = 4;
+	private static final int DEALS = 6;
+	private static final int NUM_COUNT = 7;
+
+
+	// the threads playing the games, null to play them in the calling thread
+	private final ForkJoinPool pool;
+
+
+	/** Construct a GameSimulator.
+	 *
+	 * @param threads the number of threads, 1 to play in the calling thread.
+	 */
+	public GameSimulator(int threads) {
+		if (threads < 1)
+			throw new IllegalArgumentException("The number of threads should be at least 1\n");
+		this.pool = threads == 1 ? null : new ForkJoinPool(threads);
+	}
+
+
+	/** The results of many games between two players. */
+	public static class Result {
+
+		private final long games;
+		private final long[] counts;
+
+		Result(long games, long[] counts) {
+			this.games = games;
+			this.counts = counts;
+		}
+
+		/** @return the number of games played */
+		public long games() {
+			return games;
+		}
+
+		/** @return the number of games won by a player, 0 or 1 */
+		public long wins(int player) {
+			return counts[WINS + player];
+		}
+
+		/** @return the share of the games won by a player */
+		public double winRate(int player) {
+			return (double) wins(player) / games;
+		}
+
+		/** @return the half width of the 95% confidence interval of the win rate */
+		public double margin() {
+			double p = winRate(0);
+			return 1.96 * Math.sqrt(p * (1 - p) / games);
+		}
+
+		/** @return the number of games a player won by a skunk */
+		public long skunks(int player) {
+			return counts[SKUNKS + player];
+		}
+
+		/** @return the number of hands dealt */
+		public long deals() {
+			return counts[DEALS];
+		}
+
+		/** @return the average points of a player per hand dealt */
+		public double pointsPerDeal(int player) {
+			return (double) counts[POINTS + player] / counts[DEALS];
+		}
+	}
+
+
+	/** play many games between two strategies.
+	 *
+	 * @param first makes the Strategy of player 0, once for every task.
+	 * @param second makes the Strategy of player 1.
+	 * @param games the number of games.
+	 * @param seed the seed of the random generator.
+	 * @return the results.
+	 */
+	public Result simulate(Supplier<Strategy> first, Supplier<Strategy> second, long games, long seed) {
+		if (games < 1)
+			throw new IllegalArgumentException("The number of games should be at least 1\n");
+
+		GameTask task = new GameTask(first, second, games, new SplittableRandom(seed));
+		return new Result(games, pool == null ? task.compute() : pool.invoke(task));
+	}
+
+
+	/** One game at a time between two players, with the scratch space of a task. */
+	private static class Game {
+
+		private final Strategy[] players;
+		private final SplittableRandom random;
+		private final long[] counts;
+		private final int[] deck = new int[Card.NUM_CARD];
+		private final Pegging pegging = new Pegging();
+		private final int[] scores = new int[2];
+		private final long[] hands = new long[2];
+
+		Game(Strategy[] players, SplittableRandom random, long[] counts) {
+			this.players = players;
+			this.random = random;
+			this.counts = counts;
+			for (int i = 0; i < Card.NUM_CARD; i++) {
+				deck[i] = i;
+			}
+		}
+
+		/** play a game to the end and count it. */
+		void play() {
+			scores[0] = 0;
+			scores[1] = 0;
+			int dealer = random.nextInt(2);
+			int winner;
+			do {
+				winner = deal(dealer);
+				dealer = 1 - dealer;
+			} while (winner < 0);
+
+			counts[WINS + winner]++;
+			if (scores[1 - winner] < SKUNK_SCORE)
+				counts[SKUNKS + winner]++;
+		}
+
+		/** play one hand.
+		 *
+		 * @param dealer the player dealing.
+		 * @return the player who reached 121, -1 if nobody did.
+		 */
+		private int deal(int dealer) {
+			counts[DEALS]++;
+			int pone = 1 - dealer;
+
+			// shuffle the cards needed to the front of the deck
+			int numDealt = 2 * Selector.NUM_CRIB_DEAL + 1;
+			for (int i = 0; i < numDealt; i++) {
+				int j = i + random.nextInt(Card.NUM_CARD - i);
+				int card = deck[i];
+				deck[i] = deck[j];
+				deck[j] = card;
+			}
+			long crib = 0;
+			for (int player = 0; player < 2; player++) {
+				long dealt = 0;
+				for (int i = 0; i < Selector.NUM_CRIB_DEAL; i++) {
+					dealt |= 1L << deck[player * Selector.NUM_CRIB_DEAL + i];
+				}
+				long keep = players[player].discard(dealt, player == dealer);
+				if (Long.bitCount(keep) != Selector.NUM_KEEP || (keep & ~dealt) != 0)
+					throw new IllegalArgumentException("A strategy should keep 4 of the cards dealt\n");
+				hands[player] = keep;
+				crib |= dealt & ~keep;
+			}
+			int startCard = deck[numDealt - 1];
+
+			if (Card.rankChar(startCard) == RANK_FOR_HEELS && score(dealer, POINTS_FOR_HEELS))
+				return dealer;
+			if (peg(pone))
+				return scores[0] >= WINNING_SCORE ? 0 : 1;
+
+			// the pone counts first
+			if (score(pone, Calcultor.totalPoints(hands[pone], startCard)))
+				return pone;
+			if (score(dealer, Calcultor.totalPoints(hands[dealer], startCard))
+					|| score(dealer, Calcultor.cribPoints(crib, startCard)))
+				return dealer;
+			return -1;
+		}
+
+		/** play the play, the same way as PeggingSimulator.play() but with
+		 *  the cards chosen by the strategies.
+		 *
+		 * @param pone the player laying the first card.
+		 * @return whether a player reached 121.
+		 */
+		private boolean peg(int pone) {
+			long[] left = { hands[0], hands[1] };
+			pegging.reset();
+			int turn = pone;
+			int last = pone;
+
+			while ((left[0] | left[1]) != 0) {
+				int card = play(turn, left[turn]);
+				if (card >= 0) {
+					left[turn] &= ~(1L << card);
+					last = turn;
+					if (score(turn, pegging.play(card)))
+						return true;
+					if (pegging.count() == Pegging.MAX_COUNT)
+						pegging.reset();
+					turn = 1 - turn;
+				}
+				else if (play(1 - turn, left[1 - turn]) >= 0) {
+					// go, the other player keeps playing
+					turn = 1 - turn;
+				}
+				else {
+					// nobody can play, the last one who played scores for the go
+					if (score(last, POINTS_FOR_LAST))
+						return true;
+					pegging.reset();
+					turn = 1 - last;
+				}
+			}
+			// the last card, unless it made 31
+			return pegging.count() != 0 && score(last, POINTS_FOR_LAST);
+		}
+
+		/** @return the card a player lays, checking that it can be laid */
+		private int play(int player, long hand) {
+			int card = players[player].play(hand, pegging);
+			if (card >= 0 && ((hand & 1L << card) == 0 || !pegging.canPlay(card)))
+				throw new IllegalArgumentException("A strategy should lay a card it holds without going over "
+						+ Pegging.MAX_COUNT + "\n");
+			return card;
+		}
+
+		/** @return whether the points make the player reach 121 */
+		private boolean score(int player, int points) {
+			scores[player] += points;
+			counts[POINTS + player] += points;
+			return scores[player] >= WINNING_SCORE;
+		}
+	}
+
+
+	/** A task playing a number of games, returning the counts of the results. */
+	private static class GameTask extends RecursiveTask<long[]> {
+
+		private final Supplier<Strategy> first;
+		private final Supplier<Strategy> second;
+		private final long games;
+		private final SplittableRandom random;
+
+		GameTask(Supplier<Strategy> first, Supplier<Strategy> second, long games, SplittableRandom random) {
+			this.first = first;
+			this.second = second;
+			this.games = games;
+			this.random = random;
+		}
+
+		@Override
+		protected long[] compute() {
+			if (games > TASK_SIZE) {
+				long half = games / 2;
+				GameTask left = new GameTask(first, second, half, random.split());
+				left.fork();
+				long[] counts = new GameTask(first, second, games - half, random.split()).compute();
+				long[] leftCounts = left.join();
+				for (int i = 0; i < NUM_COUNT; i++) {
+					counts[i] += leftCounts[i];
+				}
+				return counts;
+			}
+
+			long[] counts = new long[NUM_COUNT];
+			Game game = new Game(new Strategy[] { first.get(), second.get() }, random, counts);
+			for (long g = 0; g < games; g++) {
+				game.play();
+			}
+			return counts;
+		}
+	}
+
+
+	/** @return the maker of the strategy with a name */
+	private static Supplier<Strategy> strategy(String name) {
+		switch (name) {
+		case "average":
+			return () -> new SelectorStrategy(false);
+		case "crib":
+			return () -> new SelectorStrategy(true);
+		case "crib-table":
+			return CribTableStrategy::new;
+		default:
+			throw new IllegalArgumentException(name + " is an invalid strategy.\n"
+					+ "Please choose average, crib or crib-table\n");
+		}
+	}
+
+
+	public static void main(String[] args) {
+		try {
+			long games = 100000;
+			int threads = 1;
+			long seed = 1;
+			int i = 0;
+			while (i < args.length && args[i].startsWith("--")) {
+				if (args[i].equals("--games") && i + 1 < args.length) games = parseLong(args[++i]);
+				else if (args[i].equals("--threads") && i + 1 < args.length) threads = (int) parseLong(args[++i]);
+				else if (args[i].equals("--seed") && i + 1 < args.length) seed = parseLong(args[++i]);
+				else throw new IllegalArgumentException(args[i] + " is an invalid option.\n");
+				i++;
+			}
+			String[] names = { "average", "crib-table" };
+			if (args.length - i == 2)
+				names = new String[] { args[i], args[i + 1] };
+			else if (args.length != i)
+				throw new IllegalArgumentException("Please input two strategies\n");
+
+			GameSimulator simulator = new GameSimulator(threads);
+			long start = System.nanoTime();
+			Result result = simulator.simulate(strategy(names[0]), strategy(names[1]), games, seed);
+			double seconds = (System.nanoTime() - start) / 1e9;
+
+			for (int player = 0; player < 2; player++) {
+				System.out.printf("%-10s wins %6.2f%% (%d games, %d skunks), %.3f points per hand%n",
+						names[player], 100 * result.winRate(player), result.wins(player),
+						result.skunks(player), result.pointsPerDeal(player));
+			}
+			System.out.printf("95%% confidence: +/- %.2f%%, %d hands%n", 100 * result.margin(), result.deals());
+			System.err.printf("%d games in %.2f s, %.0f games/s%n", games, seconds, games / seconds);
+			if (simulator.pool != null)
+				simulator.pool.shutdown();
+
+		} catch (IllegalArgumentException e) {
+			System.out.print(e.getMessage());
+			System.exit(1);
+		}
+	}
+
+
+	/** @return the number in an option, checking that it is a number */
+	private static long parseLong(String number) {
+		try {
+			return Long.parseLong(number);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException(number + " is not a number.\n");
+		}
+	}
+}
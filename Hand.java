@@ -5,21 +5,32 @@
  *  the maximum cards in hand should be 6.
  *  It also provides a static method to generate all cards from deck except those
  *  already in hand. 
+ *
+ *  A hand never changes once it is made: adding or discarding a card gives a
+ *  new hand. So the array of its cards is never copied, and a hand without
+ *  its last card shares the array of the hand it comes from.
  * 
  * @author Dongsheng Jiang
  * @login_id DONGSHENGJ
  */
 
+import java.util.Arrays;
+
 public class Hand {
 	
 	// maximum number of cards that can be held in hand
 	private static final int MAX_CARD = 6;
+	// the cards of the empty hand
+	private static final byte[] NO_CARD = new byte[0];
 	
 	
-	// record all the cards in hand
-	private final Card[] handCard = new Card[MAX_CARD];
-	// record the number of cards in hand
-	private int length = 0;
+	// record the index of all the cards in hand, in the order they were added.
+	// It is never written after the hand is made, so hands can share it.
+	private final byte[] handCard;
+	// record all the cards in hand as a mask with bit Card.id() set for each card
+	private final long mask;
+	// record the number of cards in hand, the first ones of handCard
+	private final int length;
 	
 	
 	/**Construct a Hand object.
@@ -27,22 +38,98 @@ public class Hand {
 	 * @param args A String array with each element representing a card input by user. 
 	 */
 	public Hand(String[] args) {
-		
-		length = args.length;
+		this(parse(args), args.length);
+	}
+	
+	
+	/** defult constructor */	
+	public Hand() {
+		this(NO_CARD, 0);
+	}
+	
+	
+	/**Construct a Hand object from the indices of its cards.
+	 * 
+	 * @param cards an array with the index of every card in hand.
+	 * @param numCard the number of cards in the array to use.
+	 */
+	public Hand(int[] cards, int numCard) {
+		this(toBytes(cards, numCard), numCard);
+	}
+	
+	
+	/**Construct a Hand object from a mask of cards, ordered by Card.id().
+	 * 
+	 * @param cards a mask with bit Card.id() set for each card in hand.
+	 */
+	public Hand(long cards) {
+		this(toBytes(cards), Long.bitCount(cards));
+	}
+	
+	
+	/** Construct a Hand object with the first cards of an array, which is kept
+	 *  and never written, so the same array can be shared by many hands.
+	 */
+	private Hand(byte[] cards, int numCard) {
+		long mask = 0;
+		for (int i = 0; i < numCard; i++) {
+			if ((mask & 1L << cards[i]) != 0)
+				throw new IllegalArgumentException("Input arguments contain same cards.\n"
+													+ "Please check and try again.\n");
+			mask |= 1L << cards[i];
+		}
+		this.handCard = cards;
+		this.length = numCard;
+		this.mask = mask;
+	}
+	
+	
+	/** @return the indices of the cards input by user, after checking them */
+	private static byte[] parse(String[] args) {
 		
 		// make sure input arguments are valid
 		verify(args);
 		
-		int i = 0;
-		for (String s : args) {
-			handCard[i] = new Card(s.charAt(0), s.charAt(1));
-			i++;
+		byte[] cards = new byte[args.length];
+		for (int i = 0; i < args.length; i++) {
+			cards[i] = (byte) Card.parse(args[i].charAt(0), args[i].charAt(1));
 		}
+		return cards;
 	}
 	
 	
-	/** defult constructor */	
-	public Hand() {};
+	/** @return the indices of some cards as bytes, after checking them */
+	private static byte[] toBytes(int[] cards, int numCard) {
+		checkSize(numCard);
+		byte[] bytes = new byte[numCard];
+		for (int i = 0; i < numCard; i++) {
+			if (cards[i] < 0 || cards[i] >= Card.NUM_CARD)
+				throw new IllegalArgumentException(cards[i] + " is an invalid card index.\n");
+			bytes[i] = (byte) cards[i];
+		}
+		return bytes;
+	}
+	
+	
+	/** @return the indices of the cards in a mask as bytes, in ascending order */
+	private static byte[] toBytes(long cards) {
+		if ((cards & ~Card.FULL_DECK) != 0)
+			throw new IllegalArgumentException("0x" + Long.toHexString(cards) + " is an invalid card mask.\n");
+		checkSize(Long.bitCount(cards));
+		byte[] bytes = new byte[Long.bitCount(cards)];
+		for (int i = 0; cards != 0; cards &= cards - 1, i++) {
+			bytes[i] = (byte) Long.numberOfTrailingZeros(cards);
+		}
+		return bytes;
+	}
+	
+	
+	/** make sure a hand is not too big */
+	private static void checkSize(int numCard) {
+		if (numCard > MAX_CARD)
+			throw new IllegalArgumentException("Invalid input, a hand can hold at most " 
+											+ MAX_CARD + " cards\n");
+	}
 	
 	
 	/** @return an array of Card objects representing all the cards in hand*/
@@ -51,25 +138,38 @@ public class Hand {
 		Card[] newHandCard = new Card[length];
 		
 		for (int i = 0; i < length; i++) {
-			newHandCard[i] = handCard[i].clone();
+			newHandCard[i] = Card.of(handCard[i]);
 		}
 		
 		return newHandCard;
 	}
 	
 	
+	/** @return a mask with bit Card.id() set for every card in hand */
+	public long mask() {
+		return mask;
+	}
+	
+	
+	/** @return the index of the card at a certain position in hand */
+	public int cardAt(int i) {
+		return handCard[i];
+	}
+	
+	
 	/**Check to see if input array satisfy the condition that an input 
 	 * should not contain any two identical cards and also check 
 	 * that every string elements should contain exactly two characters.
 	 */
-	private void verify(String[] args) {
+	private static void verify(String[] args) {
+		checkSize(args.length);
 		
-		for (int i = 0; i < length; i++) {
+		for (int i = 0; i < args.length; i++) {
 			if (args[i].length() != 2) {
 				throw new IllegalArgumentException("Invalid input, make sure every arguments "
 												+ "contain two characters\n");
 			}
-			for (int j = i+1; j < length; j++) {
+			for (int j = i+1; j < args.length; j++) {
 				if (args[i].equals(args[j])) {
 					throw new IllegalArgumentException("Input arguments contain same cards.\n"
 														+ "Please check and try again.\n");
@@ -80,33 +180,31 @@ public class Hand {
 
 	
 	/** add new card to a hand, and return it as a new hand.
-	 *  this method is used by combination function to.generate
-	 *  new combinations based on previous combinations.
 	 * 
 	 * @param newCard a Card type pramater representing a card that need to be added to the hand.
 	 * @return a new Hand type object with newCard been added.
 	 */
 	public Hand addCard(Card newCard) {
-		Hand newHand = this.clone();
-		newHand.insertCard(newCard);
-		return newHand;
+		checkSize(length + 1);
+		byte[] cards = Arrays.copyOf(handCard, length + 1);
+		cards[length] = (byte) newCard.id();
+		return new Hand(cards, length + 1);
 	}
 	
 	
-	/** insert a card to currrent hand*/ 
-	private void insertCard(Card newCard) {
-		handCard[length] = newCard.clone();
-		length += 1;
+	/** @return the last card added to hand */
+	public Card lastCard() {
+		return Card.of(handCard[length - 1]);
 	}
 	
 	
-	/** discard one card from hand. this method is used for combination function
-	 *  to help it invoke itself recursively and reduce problem size
+	/** discard the last card added to hand, and return the rest as a new hand,
+	 *  which shares the cards of this one.
+	 * 
+	 * @return a new Hand type object without the last card.
 	 */
-	public Card discardOneCard() {
-		Card oldCard = handCard[length-1];
-		length -= 1;
-		return oldCard;
+	public Hand withoutLastCard() {
+		return new Hand(handCard, length - 1);
 	}
 	
 	
@@ -130,44 +228,26 @@ public class Hand {
 	public int value() {
 		int sum = 0;
 		for (int i = 0; i < length; i++) {
-			sum += handCard[i].value();
+			sum += Card.valueOf(handCard[i]);
 		}
 		return sum;
 	}
 	
 	
-	/** sort the cards in hand according to their order of rank.
-	 *  this method is used for pre-processing purpose in counting
-	 *  points for Runs.
+	/** test whether all cards in hand can form a Runs, that is whether their
+	 *  ranks are all different and follow each other.
 	 */
-	private void sort() {
-		
-		int N = length;
-		
-		for (int i = 0; i < N; i++) {
-			int min =i;
-			for (int j = i+1; j<N; j++)
-				if(handCard[j].order() < handCard[min].order()) {
-					min = j;
-				}
-			Card temp = handCard[i];
-			handCard[i] = handCard[min];
-			handCard[min] = temp;	
-		}
-	}
-	
-	
-	/** test whether all cards in hand can form a Runs.*/
 	public boolean allInOrder() {
-		
-		sort();
-		
-		for (int i = 0; i < length - 1; i++) {
-			if (handCard[i].order() + 1 != handCard[i + 1].order())
-				return false;
+		int ranks = 0;
+		for (int i = 0; i < length; i++) {
+			ranks |= 1 << Card.rankOf(handCard[i]);
 		}
+		if (Integer.bitCount(ranks) != length)
+			return false;
 		
-		return true;
+		// the ranks in a row are a block of ones
+		int low = ranks >>> Integer.numberOfTrailingZeros(ranks | 1 << Card.NUM_RANK);
+		return (low & low + 1) == 0;
 	}
 	
 	
@@ -177,28 +257,7 @@ public class Hand {
 	 *  @return a set of cards representing all the cards left.
 	 */
 	public Card[] restCard() {
-		
-		// initilize
-		Card[] restCard = new Card[52 - this.length];
-		int i = 0;
-		
-		// check to see if the start card from deck has already been dealed to player	
-		for (Card cardFromDeck : Card.fullDeck()) {
-			
-			boolean isValid = true;
-			
-			for (Card cardFromHand : this.getHand()) {
-				if (cardFromDeck.equals(cardFromHand))
-					isValid = false;
-			}
-			
-			// if the start card is valid add it to the pile of rest cards
-			if (isValid) {
-				restCard[i] = cardFromDeck.clone();
-				i++;
-			}
-		}
-		return restCard;
+		return LiveDeck.without(mask).cards();
 	}
 	
 	
@@ -206,20 +265,17 @@ public class Hand {
 	public String toString() {
 		String cards = "";
 		for (int i = 0; i < length - 1; i++) {
-			cards += handCard[i] + " ";
+			cards += Card.of(handCard[i]) + " ";
 		}
-		cards += handCard[length-1];
+		cards += Card.of(handCard[length-1]);
 		return cards;
 	}
 	
 	
+	/** @return this hand, as a hand never changes */
 	@Override
 	public Hand clone() {
-		Hand newHand = new Hand();
-		for (int i = 0; i < length; i++) {
-			newHand.insertCard(handCard[i]);
-		}
-		return newHand;
+		return this;
 	}
 	
 }
@@ -0,0 +1,112 @@
+/** This class is used to find the distribution of the points of every choice
+ *  of 4 cards to keep from a hand of 4-6 cards, with each of the cards not in
+ *  hand as the start card.
+ *
+ *  The choices are gone through in the same order as Selector does, and the
+ *  points of a choice with each start card are added to its ScoreDistribution.
+ *  The distributions are made once and cleared for every hand, so a hand
+ *  costs as many scorings as a Selector without the crib and creates nothing.
+ *  Only the points in hand are counted, not those of the crib.
+ *
+ * @author Dongsheng Jiang
+ * @login_id DONGSHENGJ
+ */
+
+public class KeepStatistics {
+
+	// the most choices of the cards to keep, from a hand of 6 cards
+	private static final int MAX_CHOICE = (int) Combinations.binomial(Selector.NUM_CRIB_DEAL, Selector.NUM_KEEP);
+
+
+	// for each choice, the distribution of its points, a mask of the cards
+	// kept and a mask of their positions in hand
+	private final ScoreDistribution[] distributions = new ScoreDistribution[MAX_CHOICE];
+	private final long[] keeps = new long[MAX_CHOICE];
+	private final int[] positions = new int[MAX_CHOICE];
+	private int numChoice = 0;
+	// the choice with the greatest mean
+	private int best = -1;
+
+	private final Combinations cursor = new Combinations();
+
+
+	/** Construct a KeepStatistics. */
+	public KeepStatistics() {
+		for (int k = 0; k < MAX_CHOICE; k++) {
+			distributions[k] = new ScoreDistribution();
+		}
+	}
+
+
+	/** find the distributions of all the choices of the cards to keep from a hand.
+	 *
+	 * @param startHand a hand of 4-6 cards.
+	 * @return this object.
+	 */
+	public KeepStatistics compute(Hand startHand) {
+		if (startHand.getNumCard() < Selector.NUM_KEEP)
+			throw new IllegalArgumentException("Please input 4-6 cards\n");
+
+		long starters = Card.FULL_DECK & ~startHand.mask();
+		numChoice = 0;
+		best = -1;
+		for (cursor.reset((1L << startHand.getNumCard()) - 1, Selector.NUM_KEEP); cursor.next(); numChoice++) {
+			long keep = 0;
+			for (int i = 0; i < Selector.NUM_KEEP; i++) {
+				keep |= 1L << startHand.cardAt(cursor.element(i));
+			}
+			keeps[numChoice] = keep;
+			positions[numChoice] = (int) cursor.mask();
+
+			ScoreDistribution distribution = distributions[numChoice];
+			distribution.clear();
+			for (long s = starters; s != 0; s &= s - 1) {
+				distribution.add(Calcultor.totalPoints(keep, Long.numberOfTrailingZeros(s)));
+			}
+
+			// the same choice as Selector among those with the same mean
+			if (best < 0 || distribution.sum() > distributions[best].sum() ||
+					(distribution.sum() == distributions[best].sum() &&
+					Selector.order(positions[numChoice]) < Selector.order(positions[best])))
+				best = numChoice;
+		}
+		return this;
+	}
+
+
+	/** @return the number of choices of the last hand */
+	public int numChoice() {
+		return numChoice;
+	}
+
+
+	/** @return the choice with the greatest mean, as Selector chooses without the crib */
+	public int best() {
+		return best;
+	}
+
+
+	/** @return the distribution of the points of the k-th choice */
+	public ScoreDistribution distribution(int k) {
+		return distributions[check(k)];
+	}
+
+
+	/** @return a mask of the cards kept by the k-th choice */
+	public long keep(int k) {
+		return keeps[check(k)];
+	}
+
+
+	/** @return a mask of the positions in hand of the cards kept by the k-th choice */
+	public int positions(int k) {
+		return positions[check(k)];
+	}
+
+
+	private int check(int k) {
+		if (k < 0 || k >= numChoice)
+			throw new IllegalArgumentException("There is no choice " + k + "\n");
+		return k;
+	}
+}
@@ -0,0 +1,363 @@
+/** This class is used to look up the best cards to keep from a deal of 6
+ *  cards in a table made once for all the C(52, 6) = 20358520 deals, so no
+ *  choice is scored when a deal is looked up.
+ *
+ *  The table is a file read through a memory mapping. It starts with a header
+ *  of HEADER_SIZE bytes: a magic number, the version of the format, the
+ *  number of cards in a deal, the number of deals and a signature of the
+ *  scoring rules, so a table made by rules that have changed since is not
+ *  used. Then comes one int for each deal, at the index of the deal among all
+ *  the sets of 6 cards (see Combinations.index()), so finding it takes a
+ *  single computation and a single read.
+ *
+ *  The int of a deal holds, in the bits 0-14, the set of its best choices,
+ *  bit k being set if the k-th choice of 4 of the cards taken in ascending
+ *  order has the greatest expected score, and in the bits 16-26 the sum of
+ *  the points of a best choice with each of the 46 start cards. All the best
+ *  choices are kept because about one deal in nine has more than one, and
+ *  Selector picks one of them by the order of the cards in hand. So a table
+ *  gives the same cards as Selector without the crib.
+ *
+ *  Only the deals in their canonical form (see SuitCanonicalizer), about one
+ *  in twenty, are scored when the table is made. The others are filled in
+ *  from them by renaming the suits back.
+ *
+ *  usage: java KeepTable [--threads n] file
+ *
+ * @author Dongsheng Jiang
+ * @login_id DONGSHENGJ
+ */
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class KeepTable {
+
+	// number of cards in a deal
+	public static final int NUM_CARD = Selector.NUM_CRIB_DEAL;
+	// number of deals in the table
+	public static final int NUM_DEAL = (int) Combinations.binomial(Card.NUM_CARD, NUM_CARD);
+	// number of choices of the cards to keep from a deal
+	private static final int NUM_CHOICE = (int) Combinations.binomial(NUM_CARD, Selector.NUM_KEEP);
+	// number of start cards for a deal
+	private static final int NUM_STARTER = Card.NUM_CARD - NUM_CARD;
+
+	// "CRBK", the first bytes of a table file
+	private static final int MAGIC = 0x4352424B;
+	// the version of the format, to be changed when the format changes
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 32;
+	private static final int ENTRY_SIZE = Integer.BYTES;
+
+	// bits of an entry holding the set of best choices and the sum of points
+	private static final int CHOICE_BITS = 0x7FFF;
+	private static final int SUM_SHIFT = 16;
+
+	// a mask of the positions, among the cards of a deal in ascending order,
+	// of the cards kept by each choice
+	private static final int[] CHOICE_POSITIONS = new int[NUM_CHOICE];
+	// the choice keeping the cards at some positions, -1 if there is none
+	private static final int[] CHOICE_INDEX = new int[1 << NUM_CARD];
+
+	static {
+		Arrays.fill(CHOICE_INDEX, -1);
+		Combinations cursor = new Combinations();
+		int k = 0;
+		for (cursor.reset((1L << NUM_CARD) - 1, Selector.NUM_KEEP); cursor.next(); k++) {
+			CHOICE_POSITIONS[k] = (int) cursor.mask();
+			CHOICE_INDEX[(int) cursor.mask()] = k;
+		}
+	}
+
+
+	// the entries of the table, after the header
+	private final MappedByteBuffer entries;
+
+
+	private KeepTable(MappedByteBuffer entries) {
+		this.entries = entries;
+	}
+
+
+	/** open a table made by generate().
+	 *
+	 * @param file the name of the file.
+	 * @return the table.
+	 * @throws IOException if the file cannot be read.
+	 */
+	public static KeepTable open(String file) throws IOException {
+		try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+			FileChannel channel = input.getChannel();
+			if (channel.size() != HEADER_SIZE + (long) NUM_DEAL * ENTRY_SIZE)
+				throw new IllegalArgumentException(file + " is not a table of the cards to keep.\n");
+
+			// the mapping stays valid after the file is closed
+			MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+			if (header.getInt(0) != MAGIC || header.getInt(8) != NUM_CARD || header.getLong(16) != NUM_DEAL)
+				throw new IllegalArgumentException(file + " is not a table of the cards to keep.\n");
+			if (header.getInt(4) != VERSION || header.getLong(24) != rulesSignature())
+				throw new IllegalArgumentException(file + " was made by another version of this program. Please make it again\n");
+
+			return new KeepTable(channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, (long) NUM_DEAL * ENTRY_SIZE));
+		}
+	}
+
+
+	/** @return the entry of a deal of 6 cards given as a mask */
+	private int entry(long deal) {
+		return entries.getInt((int) Combinations.index(deal) * ENTRY_SIZE);
+	}
+
+
+	/** @return the sum of the points of the best choice with each start card, for a deal of 6 cards */
+	private int sum(long deal) {
+		return entry(deal) >>> SUM_SHIFT;
+	}
+
+
+	/** @return the expected score of the best choice for a deal of 6 cards given as a mask */
+	public double expectedScore(long deal) {
+		return (double) sum(deal) / NUM_STARTER;
+	}
+
+
+	/** choose 4 cards to keep from a hand of 6 cards as select() does, with their score.
+	 *
+	 * @param startHand a hand of 6 cards.
+	 * @return the cards to keep, in the same order as in startHand, and their score.
+	 */
+	public RankedKeep best(Hand startHand) {
+		return new RankedKeep(select(startHand), sum(startHand.mask()), NUM_STARTER);
+	}
+
+
+	/** choose 4 cards to keep from a hand of 6 cards with the greatest expected score,
+	 *  the same choice as Selector makes without the crib.
+	 *
+	 * @param startHand a hand of 6 cards.
+	 * @return a hand of the 4 cards to keep, in the same order as in startHand.
+	 */
+	public Hand select(Hand startHand) {
+		if (startHand.getNumCard() != NUM_CARD)
+			throw new IllegalArgumentException("Please input 6 cards to use the table\n");
+
+		long deal = startHand.mask();
+		int best = entry(deal) & CHOICE_BITS;
+
+		// among the best choices, keep the first one in the order of Selector
+		int max = -1;
+		for (; best != 0; best &= best - 1) {
+			long keep = choice(deal, Integer.numberOfTrailingZeros(best));
+			int positions = 0;
+			for (int i = 0; i < NUM_CARD; i++) {
+				if ((keep & 1L << startHand.cardAt(i)) != 0)
+					positions |= 1 << i;
+			}
+			if (max < 0 || Selector.order(positions) < Selector.order(max))
+				max = positions;
+		}
+		return Selector.toHand(startHand, max);
+	}
+
+
+	/** make a table for all the deals of 6 cards and write it to a file.
+	 *
+	 * @param file the name of the file.
+	 * @param threads the number of threads scoring the deals.
+	 * @throws IOException if the file cannot be written.
+	 */
+	public static void generate(String file, int threads) throws IOException {
+		if (threads < 1)
+			throw new IllegalArgumentException("The number of threads should be at least 1\n");
+
+		try (RandomAccessFile output = new RandomAccessFile(file, "rw")) {
+			output.setLength(0);
+			FileChannel channel = output.getChannel();
+			MappedByteBuffer table = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+					HEADER_SIZE + (long) NUM_DEAL * ENTRY_SIZE);
+
+			// score the canonical deals first, then fill in the others from them
+			ForkJoinPool pool = new ForkJoinPool(threads);
+			try {
+				pool.invoke(new FillTask(table, true, NUM_CARD - 1, Card.NUM_CARD));
+				pool.invoke(new FillTask(table, false, NUM_CARD - 1, Card.NUM_CARD));
+			} finally {
+				pool.shutdown();
+			}
+
+			// the header comes last, so a table that was not finished is not used
+			table.putInt(4, VERSION);
+			table.putInt(8, NUM_CARD);
+			table.putLong(16, NUM_DEAL);
+			table.putLong(24, rulesSignature());
+			table.putInt(0, MAGIC);
+			table.force();
+		}
+	}
+
+
+	/** score all the choices of a deal with every start card.
+	 *
+	 * @param deal a mask of 6 cards.
+	 * @return the entry of the deal.
+	 */
+	private static int score(long deal) {
+		long starters = Card.FULL_DECK & ~deal;
+		int best = 0;
+		int max = -1;
+		for (int k = 0; k < NUM_CHOICE; k++) {
+			long keep = choice(deal, k);
+			int sum = 0;
+			for (long s = starters; s != 0; s &= s - 1) {
+				sum += Calcultor.totalPoints(keep, Long.numberOfTrailingZeros(s));
+			}
+			if (sum > max) {
+				max = sum;
+				best = 0;
+			}
+			if (sum == max)
+				best |= 1 << k;
+		}
+		return max << SUM_SHIFT | best;
+	}
+
+
+	/** find the entry of a deal from the entry of its canonical form.
+	 *
+	 * @param deal a mask of 6 cards.
+	 * @param permutation the renaming of the suits giving the canonical form.
+	 * @param canonicalEntry the entry of the canonical form.
+	 * @return the entry of the deal.
+	 */
+	private static int rename(long deal, int permutation, int canonicalEntry) {
+		long canonical = SuitCanonicalizer.apply(deal, permutation);
+		int inverse = SuitCanonicalizer.inverse(permutation);
+		int best = 0;
+		for (int b = canonicalEntry & CHOICE_BITS; b != 0; b &= b - 1) {
+			long keep = SuitCanonicalizer.apply(choice(canonical, Integer.numberOfTrailingZeros(b)), inverse);
+			best |= 1 << choiceIndex(deal, keep);
+		}
+		return canonicalEntry & ~CHOICE_BITS | best;
+	}
+
+
+	/** @return a mask of the cards kept by the k-th choice from a deal */
+	private static long choice(long deal, int k) {
+		long keep = 0;
+		int positions = CHOICE_POSITIONS[k];
+		for (int i = 0; deal != 0; deal &= deal - 1, i++) {
+			if ((positions & 1 << i) != 0)
+				keep |= deal & -deal;
+		}
+		return keep;
+	}
+
+
+	/** @return the number of the choice keeping some cards of a deal */
+	private static int choiceIndex(long deal, long keep) {
+		int positions = 0;
+		for (int i = 0; deal != 0; deal &= deal - 1, i++) {
+			if ((keep & deal & -deal) != 0)
+				positions |= 1 << i;
+		}
+		return CHOICE_INDEX[positions];
+	}
+
+
+	/** @return a number depending on the points of many hands, which changes
+	 *  if the scoring rules change
+	 */
+	private static long rulesSignature() {
+		Random random = new Random(NUM_DEAL);
+		long signature = VERSION;
+		for (int i = 0; i < 1 << 12; i++) {
+			long hand = 0;
+			while (Long.bitCount(hand) < Selector.NUM_KEEP + 1) {
+				hand |= 1L << random.nextInt(Card.NUM_CARD);
+			}
+			int startCard = Long.numberOfTrailingZeros(hand);
+			signature = signature * 31 + Calcultor.totalPoints(hand & ~(1L << startCard), startCard);
+		}
+		return signature;
+	}
+
+
+	/** A task filling in the entries of the deals whose highest card is in a
+	 *  range, either the deals in canonical form or all the others.
+	 */
+	private static class FillTask extends RecursiveAction {
+
+		private final MappedByteBuffer table;
+		private final boolean canonical;
+		private final int from;
+		private final int to;
+
+		FillTask(MappedByteBuffer table, boolean canonical, int from, int to) {
+			this.table = table;
+			this.canonical = canonical;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > 1) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new FillTask(table, canonical, from, middle),
+						new FillTask(table, canonical, middle, to));
+				return;
+			}
+
+			// every set of 5 lower cards with the highest card
+			Combinations cursor = new Combinations();
+			for (cursor.reset((1L << from) - 1, NUM_CARD - 1); cursor.next(); ) {
+				long deal = cursor.mask() | 1L << from;
+				int permutation = SuitCanonicalizer.permutation(deal, 0);
+				long canonicalDeal = SuitCanonicalizer.apply(deal, permutation);
+				int offset = HEADER_SIZE + (int) Combinations.index(deal) * ENTRY_SIZE;
+				if (canonical && canonicalDeal == deal) {
+					table.putInt(offset, score(deal));
+				}
+				else if (!canonical && canonicalDeal != deal) {
+					int canonicalEntry = table.getInt(HEADER_SIZE + (int) Combinations.index(canonicalDeal) * ENTRY_SIZE);
+					table.putInt(offset, rename(deal, permutation, canonicalEntry));
+				}
+			}
+		}
+	}
+
+
+	public static void main(String[] args) {
+		try {
+			int threads = 1;
+			int i = 0;
+			if (args.length == 3 && args[0].equals("--threads")) {
+				try {
+					threads = Integer.parseInt(args[1]);
+				} catch (NumberFormatException e) {
+					throw new IllegalArgumentException(args[1] + " is not a number.\n");
+				}
+				i = 2;
+			}
+			if (args.length != i + 1)
+				throw new IllegalArgumentException("Usage: java KeepTable [--threads n] file\n");
+
+			long start = System.nanoTime();
+			generate(args[i], threads);
+			System.out.printf("%d deals in %.1f s%n", NUM_DEAL, (System.nanoTime() - start) / 1e9);
+
+		} catch (IllegalArgumentException e) {
+			System.out.print(e.getMessage());
+			System.exit(1);
+		} catch (IOException e) {
+			System.out.println(e.getMessage());
+			System.exit(1);
+		}
+	}
+}
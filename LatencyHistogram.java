@@ -0,0 +1,136 @@
+/** This class is used to record how long requests take and to report the
+ *  percentiles of these times and the number of requests per second.
+ *
+ *  A time in nanoseconds goes to a bucket found from its highest bit and the
+ *  SUB_BITS bits after it, so the buckets are at most 1/8 wide relative to
+ *  the times in them and there are only a few hundred of them. The counts are
+ *  atomic, so many threads can record at once without a lock, and recording
+ *  creates nothing.
+ *
+ * @author Dongsheng Jiang
+ * @login_id DONGSHENGJ
+ */
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class LatencyHistogram {
+
+	// number of bits after the highest one telling the bucket of a time
+	private static final int SUB_BITS = 3;
+	private static final int NUM_SUB = 1 << SUB_BITS;
+	private static final int NUM_BUCKET = (Long.SIZE - SUB_BITS) * NUM_SUB;
+	// the percentiles in the report
+	private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+
+	private final AtomicLongArray counts = new AtomicLongArray(NUM_BUCKET);
+	private final AtomicLong max = new AtomicLong();
+	// the time the recording started at
+	private volatile long start = System.nanoTime();
+
+
+	/** record the time of one request.
+	 *
+	 * @param nanos the time in nanoseconds.
+	 */
+	public void record(long nanos) {
+		if (nanos < 0)
+			nanos = 0;
+		counts.incrementAndGet(bucket(nanos));
+		long old;
+		while (nanos > (old = max.get()) && !max.compareAndSet(old, nanos)) {}
+	}
+
+
+	/** @return the number of requests recorded */
+	public long count() {
+		long count = 0;
+		for (int i = 0; i < NUM_BUCKET; i++) {
+			count += counts.get(i);
+		}
+		return count;
+	}
+
+
+	/** find a time that a percentage of the requests took at most.
+	 *
+	 * @param percent a number from 0 to 100.
+	 * @return the time in nanoseconds, rounded up to the end of its bucket, 0 if
+	 *  there is no request.
+	 */
+	public long percentile(double percent) {
+		if (percent < 0 || percent > 100)
+			throw new IllegalArgumentException("A percentile should be from 0 to 100\n");
+		long count = count();
+		if (count == 0)
+			return 0;
+		long rank = Math.max(1, (long) Math.ceil(percent * count / 100));
+		long below = 0;
+		for (int i = 0; i < NUM_BUCKET; i++) {
+			below += counts.get(i);
+			if (below >= rank)
+				return Math.min(highest(i), max.get());
+		}
+		return max.get();
+	}
+
+
+	/** @return the longest time recorded in nanoseconds */
+	public long max() {
+		return max.get();
+	}
+
+
+	/** @return the number of requests per second since the recording started */
+	public double throughput() {
+		long nanos = System.nanoTime() - start;
+		return nanos <= 0 ? 0 : count() * 1e9 / nanos;
+	}
+
+
+	/** forget all the times recorded and start again. */
+	public void reset() {
+		for (int i = 0; i < NUM_BUCKET; i++) {
+			counts.set(i, 0);
+		}
+		max.set(0);
+		start = System.nanoTime();
+	}
+
+
+	/** @return the number of requests, the requests per second and the
+	 *  percentiles of the times in microseconds, on one line
+	 */
+	@Override
+	public String toString() {
+		StringBuilder report = new StringBuilder();
+		report.append("count=").append(count());
+		report.append(String.format(" throughput=%.1f/s", throughput()));
+		for (double p : PERCENTILES) {
+			report.append(String.format(" p%s=%.1fus", p == (int) p ? "" + (int) p : "" + p, percentile(p) / 1e3));
+		}
+		report.append(String.format(" max=%.1fus", max() / 1e3));
+		return report.toString();
+	}
+
+
+	/** @return the bucket of a time */
+	private static int bucket(long nanos) {
+		if (nanos < NUM_SUB)
+			return (int) nanos;
+		int high = Long.SIZE - 1 - Long.numberOfLeadingZeros(nanos);
+		int shift = high - SUB_BITS;
+		return (shift + 1) * NUM_SUB + (int) (nanos >>> shift & NUM_SUB - 1);
+	}
+
+
+	/** @return the longest time in a bucket */
+	private static long highest(int bucket) {
+		if (bucket < NUM_SUB)
+			return bucket;
+		int shift = bucket / NUM_SUB - 1;
+		long lowest = (long) (NUM_SUB + bucket % NUM_SUB) << shift;
+		return lowest + (1L << shift) - 1;
+	}
+}
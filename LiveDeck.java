@@ -0,0 +1,145 @@
+/** This class is used to keep track of the cards that can still come from
+ *  the deck, once some cards are known to be out of it: the cards in hand,
+ *  the cards laid in the play, or any card seen by chance.
+ *
+ *  The live cards are kept in a mask with bit Card.id() set for each card,
+ *  and since the id of a card is rank * 4 + suit, the cards of a rank are 4
+ *  bits in a row and the cards of a suit every fourth bit. So the number of
+ *  live cards of a rank or of a suit is one bit count, whatever the number
+ *  of dead cards. A LiveDeck never changes: killing cards gives a new one.
+ *
+ * @author Dongsheng Jiang
+ * @login_id DONGSHENGJ
+ */
+
+public class LiveDeck {
+
+	// the cards of one rank, the cards of the next rank being the same mask shifted by 4
+	private static final long ONE_RANK = (1L << Card.NUM_SUIT) - 1;
+	// the value of the cards of the ten, jack, queen and king
+	private static final int TEN = 10;
+
+
+	// a mask of the live cards
+	private final long live;
+
+
+	/** Construct a LiveDeck with all the 52 cards. */
+	public LiveDeck() {
+		this(Card.FULL_DECK);
+	}
+
+
+	/** Construct a LiveDeck with some cards.
+	 *
+	 * @param live a mask of the live cards.
+	 */
+	public LiveDeck(long live) {
+		if ((live & ~Card.FULL_DECK) != 0)
+			throw new IllegalArgumentException("Invalid input, a deck has " + Card.NUM_CARD + " cards\n");
+		this.live = live;
+	}
+
+
+	/** @return a deck without some dead cards */
+	public static LiveDeck without(long dead) {
+		return new LiveDeck(Card.FULL_DECK & ~dead);
+	}
+
+
+	/** @return a deck without the cards of a hand */
+	public static LiveDeck without(Hand hand) {
+		return without(hand.mask());
+	}
+
+
+	/** @return this deck without some more dead cards */
+	public LiveDeck kill(long dead) {
+		return new LiveDeck(live & ~dead);
+	}
+
+
+	/** @return this deck without the cards of a hand */
+	public LiveDeck kill(Hand hand) {
+		return kill(hand.mask());
+	}
+
+
+	/** @return this deck without a card */
+	public LiveDeck kill(Card card) {
+		return kill(card.mask());
+	}
+
+
+	/** @return a mask of the live cards */
+	public long mask() {
+		return live;
+	}
+
+
+	/** @return a mask of the dead cards */
+	public long dead() {
+		return Card.FULL_DECK & ~live;
+	}
+
+
+	/** @return the number of live cards */
+	public int size() {
+		return Long.bitCount(live);
+	}
+
+
+	/** @return whether a card is live */
+	public boolean contains(int card) {
+		return (live & 1L << card) != 0;
+	}
+
+
+	/** @return the number of live cards of a rank, from 0 (Ace) to 12 (King) */
+	public int countOfRank(int rank) {
+		return Long.bitCount(live >>> rank * Card.NUM_SUIT & ONE_RANK);
+	}
+
+
+	/** @return the number of live cards of a suit, from 0 to 3 in the order C, D, H, S */
+	public int countOfSuit(int suit) {
+		return Long.bitCount(live & Card.suitMask(suit));
+	}
+
+
+	/** @return the number of live cards with a value used to count 15s, from 1 to 10 */
+	public int countOfValue(int value) {
+		if (value < TEN)
+			return countOfRank(value - 1);
+		// the ten and the face cards are the last 16 cards
+		return Long.bitCount(live >>> (TEN - 1) * Card.NUM_SUIT);
+	}
+
+
+	/** @return the indices of the live cards, each of them can be the start card, in ascending order */
+	public int[] starters() {
+		long cards = live;
+		int[] starters = new int[Long.bitCount(cards)];
+		for (int i = 0; cards != 0; cards &= cards - 1) {
+			starters[i++] = Long.numberOfTrailingZeros(cards);
+		}
+		return starters;
+	}
+
+
+	/** @return the live cards, in ascending order */
+	public Card[] cards() {
+		long cards = live;
+		Card[] deck = new Card[Long.bitCount(cards)];
+		for (int i = 0; cards != 0; cards &= cards - 1) {
+			deck[i++] = Card.of(Long.numberOfTrailingZeros(cards));
+		}
+		return deck;
+	}
+
+
+	@Override
+	public String toString() {
+		return size() + " live cards";
+	}
+}
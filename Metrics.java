@@ -0,0 +1,182 @@
+/** This class is used to count where the time of the scoring goes: how many
+ *  times each rule and each step is called, how many nanoseconds it takes in
+ *  all and, for the steps that create objects, how many bytes they allocate.
+ *
+ *  The counting is off unless the program is started with
+ *  -Dcribbage.metrics=true. ENABLED is a constant, so when it is false the
+ *  compiler drops the counting code and the scoring costs the same as
+ *  without it. When it is true every call to a rule reads the clock twice,
+ *  which slows the scoring down, but not the shares of the time between the
+ *  rules. The times of a step include those of the rules it calls.
+ *
+ *  The counters are LongAdder objects, so many threads can count at once
+ *  without waiting for each other. With -Dcribbage.metrics.period=ms a report
+ *  is written to the standard error every ms milliseconds.
+ *
+ * @author Dongsheng Jiang
+ * @login_id DONGSHENGJ
+ */
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+public class Metrics {
+
+	// whether anything is counted
+	public static final boolean ENABLED = Boolean.getBoolean("cribbage.metrics");
+	// the number of milliseconds between two reports, 0 for no report
+	public static final long PERIOD = Long.getLong("cribbage.metrics.period", 0);
+
+
+	// enumerate the rules and the steps that are counted.
+	public static enum Probe {
+		NOB("pointsForNob"),
+		FLUSHES("pointsForFlushes"),
+		CRIB_FLUSHES("pointsForCribFlushes"),
+		FIFTEENS("pointsFor15S"),
+		PAIRS("pointsForPairs"),
+		RUNS("pointsForRuns"),
+		SCORE_TABLE("ScoreTable.points"),
+		TOTAL_POINTS("totalPoints"),
+		CRIB_POINTS("cribPoints"),
+		SUM_POINTS("sumPoints"),
+		COMBINATION("combination"),
+		SELECT("Selector.select");
+
+		// the name in the report
+		private final String label;
+		private final LongAdder calls = new LongAdder();
+		private final LongAdder nanos = new LongAdder();
+		private final LongAdder bytes = new LongAdder();
+
+		Probe(String label) {
+			this.label = label;
+		}
+	}
+
+
+	// gives the bytes allocated by a thread, null if the Java runtime cannot
+	private static final com.sun.management.ThreadMXBean THREADS = ENABLED ? threads() : null;
+
+
+	/** count one call of a rule or a step.
+	 *
+	 * @param probe the rule or the step.
+	 * @param start the time it started at, from System.nanoTime().
+	 */
+	public static void record(Probe probe, long start) {
+		probe.calls.increment();
+		probe.nanos.add(System.nanoTime() - start);
+	}
+
+
+	/** count one call of a step that creates objects.
+	 *
+	 * @param probe the step.
+	 * @param start the time it started at, from System.nanoTime().
+	 * @param startBytes the bytes allocated by the thread when it started, from allocatedBytes().
+	 */
+	public static void record(Probe probe, long start, long startBytes) {
+		record(probe, start);
+		if (startBytes >= 0)
+			probe.bytes.add(allocatedBytes() - startBytes);
+	}
+
+
+	/** @return the bytes allocated so far by the calling thread, -1 if it is not known */
+	public static long allocatedBytes() {
+		if (THREADS == null)
+			return -1;
+		return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+
+	/** @return the number of calls of a rule or a step */
+	public static long calls(Probe probe) {
+		return probe.calls.sum();
+	}
+
+
+	/** @return the nanoseconds taken by all the calls of a rule or a step */
+	public static long nanos(Probe probe) {
+		return probe.nanos.sum();
+	}
+
+
+	/** @return the bytes allocated by all the calls of a step */
+	public static long bytes(Probe probe) {
+		return probe.bytes.sum();
+	}
+
+
+	/** set all the counters back to 0. */
+	public static void reset() {
+		for (Probe probe : Probe.values()) {
+			probe.calls.reset();
+			probe.nanos.reset();
+			probe.bytes.reset();
+		}
+	}
+
+
+	/** @return a table of the counters, one line for each rule or step called */
+	public static String report() {
+		StringBuilder report = new StringBuilder();
+		report.append(String.format("%-22s %14s %14s %10s %14s%n", "probe", "calls", "total ms", "ns/call", "bytes"));
+		for (Probe probe : Probe.values()) {
+			long calls = calls(probe);
+			if (calls == 0) continue;
+			report.append(String.format("%-22s %14d %14.1f %10.1f %14d%n", probe.label, calls,
+					nanos(probe) / 1e6, (double) nanos(probe) / calls, bytes(probe)));
+		}
+		return report.toString();
+	}
+
+
+	/** write a report at a fixed rate from a background thread, which does not
+	 *  keep the program running.
+	 *
+	 * @param millis the number of milliseconds between two reports.
+	 * @param output the stream the reports are written to.
+	 */
+	public static void reportEvery(long millis, PrintStream output) {
+		if (millis <= 0)
+			throw new IllegalArgumentException("The period of the reports should be positive\n");
+		ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(task -> {
+			Thread thread = new Thread(task, "metrics-report");
+			thread.setDaemon(true);
+			return thread;
+		});
+		timer.scheduleAtFixedRate(() -> output.print(report()), millis, millis, TimeUnit.MILLISECONDS);
+	}
+
+
+	/** start the reports asked for by the system properties, and write a last
+	 *  report when the program ends. Nothing is done if the counting is off.
+	 */
+	public static void start() {
+		if (!ENABLED)
+			return;
+		if (PERIOD > 0)
+			reportEvery(PERIOD, System.err);
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> System.err.print(report())));
+	}
+
+
+	private static com.sun.management.ThreadMXBean threads() {
+		try {
+			com.sun.management.ThreadMXBean threads =
+					(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+			if (!threads.isThreadAllocatedMemorySupported())
+				return null;
+			threads.setThreadAllocatedMemoryEnabled(true);
+			return threads;
+		} catch (ClassCastException | UnsupportedOperationException e) {
+			return null;
+		}
+	}
+}
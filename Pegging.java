@@ -0,0 +1,137 @@
+/** This class is used to count the points of the play, when the players lay
+ *  their cards one at a time and call out the running count.
+ *
+ *  A card scores when it brings the count to 15 or to 31 (2 points), when it
+ *  has the same rank as the cards just before it (2 points for a pair, 6 for
+ *  three and 12 for four of a kind), and when it ends a run of 3 or more
+ *  cards in any order (1 point per card). The count never goes over 31, and
+ *  a new sequence starts from 0 after 31 or when nobody can play.
+ *
+ *  The ranks of the cards of the current sequence are kept on a stack. The
+ *  cards of the same rank at its top are counted as they are played, and a
+ *  run is found by walking down the stack with a mask of the ranks seen,
+ *  stopping at the first rank seen twice, so it looks at a few cards at
+ *  most (a sequence holds at most 13 cards). points() gives the points of a
+ *  card without playing it, so a player can try all its cards first.
+ *
+ * @author Dongsheng Jiang
+ * @login_id DONGSHENGJ
+ */
+
+public class Pegging {
+
+	// the count a sequence ends at
+	public static final int MAX_COUNT = 31;
+	// the count scoring as a 15
+	private static final int FIFTEEN = 15;
+	private static final int POINTS_FOR_15 = 2;
+	private static final int POINTS_FOR_31 = 2;
+	private static final int POINTS_FOR_PAIR = 2;
+	// the least number of cards in a run
+	private static final int MIN_RUN = 3;
+	// the most cards in a sequence, four aces, twos and threes and a four
+	private static final int MAX_SEQUENCE = 13;
+
+
+	// the ranks of the cards of the current sequence, in the order played
+	private final int[] ranks = new int[MAX_SEQUENCE];
+	private int length = 0;
+	private int count = 0;
+	// the number of cards of the same rank at the top of the stack
+	private int sameRank = 0;
+
+
+	/** start a new sequence from a count of 0. */
+	public void reset() {
+		length = 0;
+		count = 0;
+		sameRank = 0;
+	}
+
+
+	/** make this sequence the same as another one, so that a search can try
+	 *  a card on a copy and come back to the sequence before it.
+	 *
+	 * @param other the sequence to copy.
+	 * @return this object.
+	 */
+	public Pegging copyFrom(Pegging other) {
+		System.arraycopy(other.ranks, 0, ranks, 0, other.length);
+		length = other.length;
+		count = other.count;
+		sameRank = other.sameRank;
+		return this;
+	}
+
+
+	/** @return the running count of the current sequence */
+	public int count() {
+		return count;
+	}
+
+
+	/** @return the number of cards in the current sequence */
+	public int length() {
+		return length;
+	}
+
+
+	/** @return whether a card can be played without going over 31 */
+	public boolean canPlay(int card) {
+		return count + Card.valueOf(card) <= MAX_COUNT;
+	}
+
+
+	/** find the points a card would score if it was played now, without playing it.
+	 *
+	 * @param card the index of the card.
+	 * @return the points, -1 if the card would take the count over 31.
+	 */
+	public int points(int card) {
+		int newCount = count + Card.valueOf(card);
+		if (newCount > MAX_COUNT)
+			return -1;
+
+		int points = 0;
+		if (newCount == FIFTEEN) points += POINTS_FOR_15;
+		if (newCount == MAX_COUNT) points += POINTS_FOR_31;
+
+		// a pair for every two cards of the same rank at the top
+		int rank = Card.rankOf(card);
+		int same = length > 0 && ranks[length - 1] == rank ? sameRank + 1 : 1;
+		points += POINTS_FOR_PAIR * same * (same - 1) / 2;
+
+		// the longest run ending with this card, among cards of distinct ranks
+		int mask = 1 << rank;
+		int run = 0;
+		for (int i = length - 1; i >= 0; i--) {
+			int bit = 1 << ranks[i];
+			if ((mask & bit) != 0)
+				break;
+			mask |= bit;
+			int size = length - i + 1;
+			int low = mask >>> Integer.numberOfTrailingZeros(mask);
+			if (size >= MIN_RUN && (low & low + 1) == 0)
+				run = size;
+		}
+		return points + run;
+	}
+
+
+	/** play a card.
+	 *
+	 * @param card the index of the card.
+	 * @return the points it scores.
+	 */
+	public int play(int card) {
+		int points = points(card);
+		if (points < 0)
+			throw new IllegalArgumentException("The count cannot go over " + MAX_COUNT + "\n");
+
+		int rank = Card.rankOf(card);
+		sameRank = length > 0 && ranks[length - 1] == rank ? sameRank + 1 : 1;
+		ranks[length++] = rank;
+		count += Card.valueOf(card);
+		return points;
+	}
+}
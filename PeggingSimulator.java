@@ -0,0 +1,306 @@
+/** This class is used to estimate the points a player can expect from the
+ *  play with 4 cards kept, by playing it many times against random hands.
+ *
+ *  In every game the opponent gets 4 cards drawn at random from the cards
+ *  the player has not seen, and the pone lays the first card. Both players
+ *  lay the card scoring the most points at once, preferring a card that
+ *  does not leave the count at 5 or 21 and then the card of greatest value.
+ *  A player who cannot play says go; when neither can play, the last one
+ *  who played scores 1 and a new sequence starts, and the last card of the
+ *  play scores 1 unless it makes 31.
+ *
+ *  The games are split between the threads of a ForkJoinPool. Every task
+ *  gets its own SplittableRandom, split from the one of the task that made
+ *  it, so the tasks never share a random generator and the same seed gives
+ *  the same results with any number of threads. A game creates no object.
+ *
+ *  usage: java PeggingSimulator [--games n] [--threads n] [--seed n] [--dealer | --pone] cards...
+ *
+ *  With 6 cards, the play is simulated for every choice of 4 of them to keep,
+ *  which can be weighed with the expected score of the hand from Selector.
+ *
+ * @author Dongsheng Jiang
+ * @login_id DONGSHENGJ
+ */
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+public class PeggingSimulator {
+
+	// number of cards each player plays
+	public static final int NUM_PLAY = Selector.NUM_KEEP;
+	// number of games played by one task before it stops splitting the work
+	private static final int TASK_SIZE = 1 << 12;
+	// the counts a player tries not to leave, a ten-valued card making them 15 or 31
+	private static final int AVOID_1 = 5;
+	private static final int AVOID_2 = 21;
+	// the points for the last card played, and for a go
+	private static final int POINTS_FOR_LAST = 1;
+
+
+	// the threads playing the games, null to play them in the calling thread
+	private final ForkJoinPool pool;
+
+
+	/** Construct a PeggingSimulator.
+	 *
+	 * @param threads the number of threads, 1 to play in the calling thread.
+	 */
+	public PeggingSimulator(int threads) {
+		if (threads < 1)
+			throw new IllegalArgumentException("The number of threads should be at least 1\n");
+		this.pool = threads == 1 ? null : new ForkJoinPool(threads);
+	}
+
+
+	/** The points scored in the play over many games. */
+	public static class Result {
+
+		private final long games;
+		private final long points;
+		private final long opponentPoints;
+
+		Result(long games, long points, long opponentPoints) {
+			this.games = games;
+			this.points = points;
+			this.opponentPoints = opponentPoints;
+		}
+
+		/** @return the number of games played */
+		public long games() {
+			return games;
+		}
+
+		/** @return the average points of the player */
+		public double mean() {
+			return (double) points / games;
+		}
+
+		/** @return the average points of the opponent */
+		public double opponentMean() {
+			return (double) opponentPoints / games;
+		}
+
+		/** @return the average points of the player less those of the opponent */
+		public double net() {
+			return (double) (points - opponentPoints) / games;
+		}
+	}
+
+
+	/** play the play many times with 4 cards kept.
+	 *
+	 * @param keep a mask of the 4 cards the player keeps.
+	 * @param dead a mask of the other cards the player has seen, such as the discards.
+	 * @param role DEALER or PONE, the pone laying the first card.
+	 * @param games the number of games.
+	 * @param seed the seed of the random generator.
+	 * @return the points scored.
+	 */
+	public Result simulate(long keep, long dead, Selector.Role role, long games, long seed) {
+		if (Long.bitCount(keep) != NUM_PLAY)
+			throw new IllegalArgumentException("Please keep 4 cards to play\n");
+		if (role == null)
+			throw new IllegalArgumentException("Please tell whether the player is the dealer or the pone\n");
+		if (games < 1)
+			throw new IllegalArgumentException("The number of games should be at least 1\n");
+
+		GameTask task = new GameTask(keep, Card.FULL_DECK & ~keep & ~dead, role == Selector.Role.PONE,
+				games, new SplittableRandom(seed));
+		long[] points = pool == null ? task.compute() : pool.invoke(task);
+		return new Result(games, points[0], points[1]);
+	}
+
+
+	/** play one game.
+	 *
+	 * @param hand a mask of the 4 cards of the player.
+	 * @param opponent a mask of the 4 cards of the opponent.
+	 * @param leads whether the player lays the first card.
+	 * @param pegging the state of the play, reset before the game.
+	 * @param points filled with the points of the player and of the opponent.
+	 */
+	static void play(long hand, long opponent, boolean leads, Pegging pegging, long[] points) {
+		pegging.reset();
+		int score = 0;
+		int opponentScore = 0;
+		boolean turn = leads;
+		boolean last = leads;
+
+		while ((hand | opponent) != 0) {
+			int card = choose(turn ? hand : opponent, pegging);
+			if (card >= 0) {
+				int cardPoints = pegging.play(card);
+				if (turn) {
+					score += cardPoints;
+					hand &= ~(1L << card);
+				}
+				else {
+					opponentScore += cardPoints;
+					opponent &= ~(1L << card);
+				}
+				last = turn;
+				if (pegging.count() == Pegging.MAX_COUNT)
+					pegging.reset();
+				turn = !turn;
+			}
+			else if (choose(turn ? opponent : hand, pegging) >= 0) {
+				// go, the other player keeps playing
+				turn = !turn;
+			}
+			else {
+				// nobody can play, the last one who played scores for the go
+				if (last) score += POINTS_FOR_LAST;
+				else opponentScore += POINTS_FOR_LAST;
+				pegging.reset();
+				turn = !last;
+			}
+		}
+		// the last card, unless it made 31
+		if (pegging.count() != 0) {
+			if (last) score += POINTS_FOR_LAST;
+			else opponentScore += POINTS_FOR_LAST;
+		}
+
+		points[0] += score;
+		points[1] += opponentScore;
+	}
+
+
+	/** choose the card to lay from a hand.
+	 *
+	 * @param hand a mask of the cards left in hand.
+	 * @param pegging the state of the play.
+	 * @return the index of the card, -1 if no card can be played.
+	 */
+	static int choose(long hand, Pegging pegging) {
+		int best = -1;
+		int bestPoints = -1;
+		boolean bestAvoided = false;
+		for (; hand != 0; hand &= hand - 1) {
+			int card = Long.numberOfTrailingZeros(hand);
+			int points = pegging.points(card);
+			if (points < 0)
+				continue;
+			int count = pegging.count() + Card.valueOf(card);
+			boolean avoided = count != AVOID_1 && count != AVOID_2;
+			// the cards come in ascending order, so a later card is not of less value
+			if (points > bestPoints || (points == bestPoints && (avoided || !bestAvoided))) {
+				best = card;
+				bestPoints = points;
+				bestAvoided = avoided;
+			}
+		}
+		return best;
+	}
+
+
+	/** @return a mask of some cards drawn at random from a set */
+	private static long draw(long from, int numCard, SplittableRandom random) {
+		long drawn = 0;
+		while (Long.bitCount(drawn) < numCard) {
+			int card = random.nextInt(Card.NUM_CARD);
+			if ((from & 1L << card) != 0)
+				drawn |= 1L << card;
+		}
+		return drawn;
+	}
+
+
+	/** A task playing a number of games, returning the sum of the points of
+	 *  the player and of the opponent.
+	 */
+	private static class GameTask extends RecursiveTask<long[]> {
+
+		private final long hand;
+		private final long unseen;
+		private final boolean leads;
+		private final long games;
+		private final SplittableRandom random;
+
+		GameTask(long hand, long unseen, boolean leads, long games, SplittableRandom random) {
+			this.hand = hand;
+			this.unseen = unseen;
+			this.leads = leads;
+			this.games = games;
+			this.random = random;
+		}
+
+		@Override
+		protected long[] compute() {
+			if (games > TASK_SIZE) {
+				long half = games / 2;
+				GameTask left = new GameTask(hand, unseen, leads, half, random.split());
+				left.fork();
+				long[] points = new GameTask(hand, unseen, leads, games - half, random.split()).compute();
+				long[] leftPoints = left.join();
+				points[0] += leftPoints[0];
+				points[1] += leftPoints[1];
+				return points;
+			}
+
+			long[] points = new long[2];
+			Pegging pegging = new Pegging();
+			for (long g = 0; g < games; g++) {
+				play(hand, draw(unseen, NUM_PLAY, random), leads, pegging, points);
+			}
+			return points;
+		}
+	}
+
+
+	public static void main(String[] args) {
+		try {
+			long games = 1000000;
+			int threads = 1;
+			long seed = 1;
+			Selector.Role role = Selector.Role.DEALER;
+			int i = 0;
+			while (i < args.length && args[i].startsWith("--")) {
+				if (args[i].equals("--dealer")) role = Selector.Role.DEALER;
+				else if (args[i].equals("--pone")) role = Selector.Role.PONE;
+				else if (args[i].equals("--games") && i + 1 < args.length) games = parseLong(args[++i]);
+				else if (args[i].equals("--threads") && i + 1 < args.length) threads = (int) parseLong(args[++i]);
+				else if (args[i].equals("--seed") && i + 1 < args.length) seed = parseLong(args[++i]);
+				else throw new IllegalArgumentException(args[i] + " is an invalid option.\n");
+				i++;
+			}
+			String[] cards = java.util.Arrays.copyOfRange(args, i, args.length);
+			if (cards.length < NUM_PLAY || cards.length > Selector.NUM_CRIB_DEAL)
+				throw new IllegalArgumentException("Please input 4-6 cards\n");
+			Hand startHand = new Hand(cards);
+
+			PeggingSimulator simulator = new PeggingSimulator(threads);
+			long start = System.nanoTime();
+			long played = 0;
+			Combinations cursor = new Combinations();
+			for (cursor.reset(startHand.mask(), NUM_PLAY); cursor.next(); ) {
+				long keep = cursor.mask();
+				Result result = simulator.simulate(keep, startHand.mask() & ~keep, role, games, seed);
+				played += result.games();
+				System.out.printf("%s %.4f %.4f %+.4f%n", new Hand(keep), result.mean(),
+						result.opponentMean(), result.net());
+			}
+			double seconds = (System.nanoTime() - start) / 1e9;
+			System.err.printf("%d games in %.2f s, %.0f games/s%n", played, seconds, played / seconds);
+			if (simulator.pool != null)
+				simulator.pool.shutdown();
+
+		} catch (IllegalArgumentException e) {
+			System.out.print(e.getMessage());
+			System.exit(1);
+		}
+	}
+
+
+	/** @return the number in an option, checking that it is a number */
+	private static long parseLong(String number) {
+		try {
+			return Long.parseLong(number);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException(number + " is not a number.\n");
+		}
+	}
+}
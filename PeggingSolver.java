@@ -0,0 +1,518 @@
+/** This class is used to find the points a player can expect from the play
+ *  with 4 cards kept, by searching all the ways the play can go.
+ *
+ *  The player knows his own cards and those he has seen, and chooses the
+ *  card to lay that gives the greatest expected points less those of the
+ *  opponent. The cards of the opponent are not known: they are 4 of the
+ *  cards not seen, and when the opponent lays a card, every card not seen
+ *  that can be laid is taken to be as likely as the others. The chance that
+ *  the opponent cannot lay any card is the chance that all the cards left
+ *  in his hand are too high for the count, and after a go the cards left in
+ *  his hand are known to be at least that high. This is an expectimax
+ *  search: the player maximises and the opponent is a chance node. The cards
+ *  are only told apart by their ranks, which is all the play looks at.
+ *
+ *  The positions are hashed by Zobrist keys for the cards played, the cards
+ *  of the current sequence, the turn and the state of the go, and kept in a
+ *  TranspositionTable shared by all the threads. The search can be cut at a
+ *  number of cards laid, the points after the cut being taken as even.
+ *
+ *  With --check, every value is also worked out by reference(), a plain search
+ *  with no table that is only quick enough for small hands, and the two have
+ *  to agree.
+ *
+ *  usage: java PeggingSolver [--dealer | --pone] [--threads n] [--depth n] [--check] cards...
+ *
+ * @author Dongsheng Jiang
+ * @login_id DONGSHENGJ
+ */
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class PeggingSolver {
+
+	// number of cards each player lays
+	private static final int NUM_PLAY = Selector.NUM_KEEP;
+	// the depth that searches to the end of the play
+	public static final int FULL_DEPTH = 2 * NUM_PLAY;
+	// the points for the last card laid, and for a go
+	private static final int POINTS_FOR_LAST = 1;
+	// the value of a card of the greatest value
+	private static final int MAX_VALUE = 10;
+	// the greatest difference from reference() taken as rounding
+	private static final double CHECK_TOLERANCE = 1e-9;
+
+	// Zobrist keys of the parts of a position
+	private static final long[] DEALT = new long[Card.NUM_CARD];
+	private static final long[] MINE = new long[Card.NUM_CARD];
+	private static final long[][] THEIRS = new long[Card.NUM_RANK][Card.NUM_SUIT];
+	private static final long[][] SEQUENCE = new long[2 * NUM_PLAY][Card.NUM_RANK];
+	private static final long[] FLAGS = new long[1 << 3];
+	private static final long[] MIN_VALUE = new long[MAX_VALUE + 2];
+	private static final long[] DEPTH = new long[FULL_DEPTH + 1];
+
+	static {
+		SplittableRandom random = new SplittableRandom(0x5EED);
+		fill(DEALT, random);
+		fill(MINE, random);
+		for (long[] keys : THEIRS) fill(keys, random);
+		for (long[] keys : SEQUENCE) fill(keys, random);
+		fill(FLAGS, random);
+		fill(MIN_VALUE, random);
+		fill(DEPTH, random);
+	}
+
+	// the sequence with no card
+	private static final Pegging EMPTY = new Pegging();
+
+
+	// the threads searching, null to search in the calling thread
+	private final ForkJoinPool pool;
+	private final TranspositionTable table;
+
+
+	/** Construct a PeggingSolver.
+	 *
+	 * @param threads the number of threads, 1 to search in the calling thread.
+	 * @param tableBits the transposition table has 2 to the power of tableBits entries.
+	 */
+	public PeggingSolver(int threads, int tableBits) {
+		if (threads < 1)
+			throw new IllegalArgumentException("The number of threads should be at least 1\n");
+		this.pool = threads == 1 ? null : new ForkJoinPool(threads);
+		this.table = new TranspositionTable(tableBits);
+	}
+
+
+	/** @return the transposition table */
+	public TranspositionTable table() {
+		return table;
+	}
+
+
+	/** find the expected points of the play for every choice of 4 cards to keep
+	 *  from a hand, less those of the opponent.
+	 *
+	 * @param startHand a hand of 4-6 cards.
+	 * @param role DEALER or PONE, the pone laying the first card.
+	 * @param depth the number of cards laid before the search is cut, FULL_DEPTH not to cut it.
+	 * @return the value of each choice, in the order of Combinations over the cards of the hand.
+	 */
+	public double[] solve(Hand startHand, Selector.Role role, int depth) {
+		if (startHand.getNumCard() < NUM_PLAY)
+			throw new IllegalArgumentException("Please input 4-6 cards\n");
+		if (role == null)
+			throw new IllegalArgumentException("Please tell whether the player is the dealer or the pone\n");
+		if (depth < 0 || depth > FULL_DEPTH)
+			throw new IllegalArgumentException("The depth should be from 0 to " + FULL_DEPTH + "\n");
+
+		int numKeep = (int) Combinations.binomial(startHand.getNumCard(), NUM_PLAY);
+		long[] keeps = new long[numKeep];
+		Combinations cursor = new Combinations();
+		int k = 0;
+		for (cursor.reset(startHand.mask(), NUM_PLAY); cursor.next(); ) {
+			keeps[k++] = cursor.mask();
+		}
+
+		double[] values = new double[numKeep];
+		KeepTask task = new KeepTask(keeps, startHand.mask(), role == Selector.Role.PONE, depth, values, 0, numKeep);
+		if (pool == null)
+			task.compute();
+		else
+			pool.invoke(task);
+		return values;
+	}
+
+
+	/** A task searching the play for a range of the choices. */
+	private class KeepTask extends RecursiveAction {
+
+		private final long[] keeps;
+		private final long dealt;
+		private final boolean leads;
+		private final int depth;
+		private final double[] values;
+		private final int from;
+		private final int to;
+
+		KeepTask(long[] keeps, long dealt, boolean leads, int depth, double[] values, int from, int to) {
+			this.keeps = keeps;
+			this.dealt = dealt;
+			this.leads = leads;
+			this.depth = depth;
+			this.values = values;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > 1) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new KeepTask(keeps, dealt, leads, depth, values, from, middle),
+						new KeepTask(keeps, dealt, leads, depth, values, middle, to));
+				return;
+			}
+			for (int k = from; k < to; k++) {
+				values[k] = new Search(dealt, depth).value(keeps[k], leads);
+			}
+		}
+	}
+
+
+	/** The search of the play for one choice, with its own scratch space. */
+	private class Search {
+
+		// the sequences after each number of cards laid
+		private final Pegging[] sequences = new Pegging[FULL_DEPTH + 1];
+		// the number of cards not seen of each rank, that the opponent may hold
+		private final int[] unseen = new int[Card.NUM_RANK];
+		// the hash of the cards dealt, telling the deals apart in the table
+		private final long dealtHash;
+		private final int maxDepth;
+
+		Search(long dealt, int maxDepth) {
+			for (int i = 0; i <= FULL_DEPTH; i++) {
+				sequences[i] = new Pegging();
+			}
+			long hash = 0;
+			for (long cards = dealt; cards != 0; cards &= cards - 1) {
+				hash ^= DEALT[Long.numberOfTrailingZeros(cards)];
+			}
+			for (int rank = 0; rank < Card.NUM_RANK; rank++) {
+				unseen[rank] = Card.NUM_SUIT - Long.bitCount(dealt >>> rank * Card.NUM_SUIT & 0xF);
+			}
+			this.dealtHash = hash;
+			this.maxDepth = maxDepth;
+		}
+
+		/** @return the expected points of the play with some cards kept, less those of the opponent */
+		double value(long keep, boolean leads) {
+			long hash = dealtHash;
+			for (long cards = keep; cards != 0; cards &= cards - 1) {
+				hash ^= MINE[Long.numberOfTrailingZeros(cards)];
+			}
+			return search(keep, NUM_PLAY, EMPTY, 0, leads, false, true, 0, hash, 0);
+		}
+
+		/** search a position.
+		 *
+		 * @param hand a mask of the cards left in the hand of the player.
+		 * @param theirs the number of cards left in the hand of the opponent.
+		 * @param sequence the current sequence.
+		 * @param laid the number of cards laid so far.
+		 * @param mine whether the player is to lay a card.
+		 * @param go whether the other player has said go in the current sequence.
+		 * @param lastMine whether the last card of the sequence was laid by the player.
+		 * @param minValue the least value of the cards left in the hand of the opponent.
+		 * @param hash the Zobrist hash of the cards held and laid by both players.
+		 * @param sequenceHash the Zobrist hash of the current sequence.
+		 * @return the expected points of the player from here, less those of the opponent.
+		 */
+		private double search(long hand, int theirs, Pegging sequence, int laid, boolean mine,
+				boolean go, boolean lastMine, int minValue, long hash, long sequenceHash) {
+			if (hand == 0 && theirs == 0) {
+				// the last card, unless it made 31
+				if (sequence.count() == 0)
+					return 0;
+				return lastMine ? POINTS_FOR_LAST : -POINTS_FOR_LAST;
+			}
+			if (laid == maxDepth)
+				return 0;
+
+			int flags = (mine ? 1 : 0) | (go ? 2 : 0) | (lastMine && sequence.length() > 0 ? 4 : 0);
+			long key = hash ^ sequenceHash ^ FLAGS[flags] ^ MIN_VALUE[minValue] ^ DEPTH[maxDepth - laid];
+			double value = table.get(key);
+			if (!Double.isNaN(value))
+				return value;
+
+			value = mine ? mine(hand, theirs, sequence, laid, go, minValue, hash, sequenceHash)
+					: theirs(hand, theirs, sequence, laid, go, lastMine, minValue, hash, sequenceHash);
+			table.put(key, value);
+			return value;
+		}
+
+		/** the player lays the best card, or says go */
+		private double mine(long hand, int theirs, Pegging sequence, int laid, boolean go,
+				int minValue, long hash, long sequenceHash) {
+			double best = Double.NEGATIVE_INFINITY;
+			int ranksTried = 0;
+			for (long cards = hand; cards != 0; cards &= cards - 1) {
+				int card = Long.numberOfTrailingZeros(cards);
+				int rank = Card.rankOf(card);
+				// the cards of a rank all play the same
+				if ((ranksTried & 1 << rank) != 0 || !sequence.canPlay(card))
+					continue;
+				ranksTried |= 1 << rank;
+				Pegging next = sequences[laid + 1].copyFrom(sequence);
+				double value = next.play(card) + after(hand & ~(1L << card), theirs, next, laid + 1, true, go,
+						minValue, hash ^ MINE[card], sequenceHash ^ SEQUENCE[sequence.length()][rank]);
+				best = Math.max(best, value);
+			}
+			if (ranksTried != 0)
+				return best;
+			return cannotPlay(hand, theirs, sequence, laid, true, go, minValue, hash, sequenceHash);
+		}
+
+		/** the opponent lays any card not seen that can be laid, or says go */
+		private double theirs(long hand, int theirs, Pegging sequence, int laid, boolean go, boolean lastMine,
+				int minValue, long hash, long sequenceHash) {
+			// the cards the opponent may hold, and those of them that can be laid
+			int maxValue = Pegging.MAX_COUNT - sequence.count();
+			int held = 0;
+			int playable = 0;
+			for (int rank = 0; rank < Card.NUM_RANK; rank++) {
+				int value = Card.valueOf(rank * Card.NUM_SUIT);
+				if (value < minValue) continue;
+				held += unseen[rank];
+				if (value <= maxValue) playable += unseen[rank];
+			}
+
+			// the chance that none of the cards left in the hand of the opponent can be laid
+			double none = theirs == 0 ? 1 : ratio(held - playable, held, theirs);
+			double expected = 0;
+			if (none < 1) {
+				for (int rank = 0; rank < Card.NUM_RANK; rank++) {
+					int card = rank * Card.NUM_SUIT;
+					int value = Card.valueOf(card);
+					if (value < minValue || value > maxValue || unseen[rank] == 0)
+						continue;
+					double chance = (1 - none) * unseen[rank] / playable;
+					int suit = Card.NUM_SUIT - unseen[rank];
+					unseen[rank]--;
+					Pegging next = sequences[laid + 1].copyFrom(sequence);
+					double points = next.play(card);
+					double after = after(hand, theirs - 1, next, laid + 1, false, go, minValue,
+							hash ^ THEIRS[rank][suit], sequenceHash ^ SEQUENCE[sequence.length()][rank]);
+					unseen[rank]++;
+					expected += chance * (after - points);
+				}
+			}
+			if (none > 0) {
+				// after a go, the cards left are known to be too high for this count
+				int newMin = theirs == 0 ? minValue : Math.max(minValue, maxValue + 1);
+				expected += none * cannotPlay(hand, theirs, sequence, laid, false, go, newMin, hash, sequenceHash);
+			}
+			return expected;
+		}
+
+		/** move on after a card has been laid */
+		private double after(long hand, int theirs, Pegging sequence, int laid, boolean mine, boolean go,
+				int minValue, long hash, long sequenceHash) {
+			if (sequence.count() == Pegging.MAX_COUNT)
+				return search(hand, theirs, EMPTY, laid, !mine, false, mine, minValue, hash, 0);
+			// after a go, the same player keeps laying cards
+			return search(hand, theirs, sequence, laid, go ? mine : !mine, go, mine, minValue, hash, sequenceHash);
+		}
+
+		/** the player to lay a card cannot lay any */
+		private double cannotPlay(long hand, int theirs, Pegging sequence, int laid, boolean mine, boolean go,
+				int minValue, long hash, long sequenceHash) {
+			if (!go)
+				return search(hand, theirs, sequence, laid, !mine, true, !mine, minValue, hash, sequenceHash);
+
+			// nobody can play. The other player has laid no card since his go, so the player to lay
+			// a card laid the last one, scores for the go and the other starts again
+			boolean lastMine = mine;
+			double points = lastMine ? POINTS_FOR_LAST : -POINTS_FOR_LAST;
+			return points + search(hand, theirs, EMPTY, laid, !lastMine, false, lastMine, minValue, hash, 0);
+		}
+	}
+
+
+	/** find the expected points of the play for every choice of 4 cards to keep
+	 *  the plain way, to check solve() on small hands. Nothing is kept in a table,
+	 *  and who laid the last card and who said go are followed as they are.
+	 *
+	 * @param startHand a hand of 4-6 cards.
+	 * @param role DEALER or PONE, the pone laying the first card.
+	 * @param depth the number of cards laid before the search is cut, FULL_DEPTH not to cut it.
+	 * @return the value of each choice, in the order of Combinations over the cards of the hand.
+	 */
+	public static double[] reference(Hand startHand, Selector.Role role, int depth) {
+		double[] values = new double[(int) Combinations.binomial(startHand.getNumCard(), NUM_PLAY)];
+		Reference reference = new Reference(startHand.mask(), depth);
+		Combinations cursor = new Combinations();
+		int k = 0;
+		for (cursor.reset(startHand.mask(), NUM_PLAY); cursor.next(); ) {
+			values[k++] = reference.play(cursor.mask(), NUM_PLAY, new Pegging(), 0, role == Selector.Role.PONE,
+					false, false, 0);
+		}
+		return values;
+	}
+
+
+	/** The plain search of the play used by reference(). */
+	private static class Reference {
+
+		// the number of cards not seen of each rank, that the opponent may hold
+		private final int[] unseen = new int[Card.NUM_RANK];
+		private final int maxDepth;
+
+		Reference(long dealt, int maxDepth) {
+			for (int rank = 0; rank < Card.NUM_RANK; rank++) {
+				unseen[rank] = Card.NUM_SUIT - Long.bitCount(dealt >>> rank * Card.NUM_SUIT & 0xF);
+			}
+			this.maxDepth = maxDepth;
+		}
+
+		/** @param goSaid whether the player not to lay a card has said go in the current sequence */
+		double play(long hand, int theirs, Pegging sequence, int laid, boolean mine, boolean goSaid,
+				boolean lastMine, int minValue) {
+			if (hand == 0 && theirs == 0)
+				return sequence.count() == 0 ? 0 : lastMine ? POINTS_FOR_LAST : -POINTS_FOR_LAST;
+			if (laid == maxDepth)
+				return 0;
+
+			if (mine) {
+				double best = Double.NEGATIVE_INFINITY;
+				for (long cards = hand; cards != 0; cards &= cards - 1) {
+					int card = Long.numberOfTrailingZeros(cards);
+					if (!sequence.canPlay(card))
+						continue;
+					Pegging next = new Pegging().copyFrom(sequence);
+					int points = next.play(card);
+					best = Math.max(best, points + laidBy(true, hand & ~(1L << card), theirs, next, laid + 1,
+							goSaid, minValue));
+				}
+				if (best > Double.NEGATIVE_INFINITY)
+					return best;
+				return cannotPlay(true, hand, theirs, sequence, laid, goSaid, lastMine, minValue);
+			}
+
+			int maxValue = Pegging.MAX_COUNT - sequence.count();
+			int held = 0;
+			int playable = 0;
+			for (int rank = 0; rank < Card.NUM_RANK; rank++) {
+				int value = Card.valueOf(rank * Card.NUM_SUIT);
+				if (value < minValue) continue;
+				held += unseen[rank];
+				if (value <= maxValue) playable += unseen[rank];
+			}
+			double none = theirs == 0 ? 1 : ratio(held - playable, held, theirs);
+			double expected = 0;
+			for (int rank = 0; rank < Card.NUM_RANK && none < 1; rank++) {
+				int card = rank * Card.NUM_SUIT;
+				int value = Card.valueOf(card);
+				if (value < minValue || value > maxValue || unseen[rank] == 0)
+					continue;
+				double chance = (1 - none) * unseen[rank] / playable;
+				unseen[rank]--;
+				Pegging next = new Pegging().copyFrom(sequence);
+				int points = next.play(card);
+				expected += chance * (laidBy(false, hand, theirs - 1, next, laid + 1, goSaid, minValue) - points);
+				unseen[rank]++;
+			}
+			if (none > 0) {
+				int newMin = theirs == 0 ? minValue : Math.max(minValue, maxValue + 1);
+				expected += none * cannotPlay(false, hand, theirs, sequence, laid, goSaid, lastMine, newMin);
+			}
+			return expected;
+		}
+
+		/** move on after a card has been laid by the player, or by the opponent */
+		private double laidBy(boolean mine, long hand, int theirs, Pegging sequence, int laid, boolean goSaid,
+				int minValue) {
+			if (sequence.count() == Pegging.MAX_COUNT)
+				return play(hand, theirs, new Pegging(), laid, !mine, false, mine, minValue);
+			if (goSaid)
+				return play(hand, theirs, sequence, laid, mine, true, mine, minValue);
+			return play(hand, theirs, sequence, laid, !mine, false, mine, minValue);
+		}
+
+		/** the player, or the opponent, cannot lay any card */
+		private double cannotPlay(boolean mine, long hand, int theirs, Pegging sequence, int laid, boolean goSaid,
+				boolean lastMine, int minValue) {
+			if (!goSaid)
+				return play(hand, theirs, sequence, laid, !mine, true, lastMine, minValue);
+			double points = lastMine ? POINTS_FOR_LAST : -POINTS_FOR_LAST;
+			return points + play(hand, theirs, new Pegging(), laid, !lastMine, false, lastMine, minValue);
+		}
+	}
+
+
+	/** @return the chance that k cards drawn from n are all among m of them, C(m, k) / C(n, k) */
+	private static double ratio(int m, int n, int k) {
+		if (k > m)
+			return 0;
+		double ratio = 1;
+		for (int i = 0; i < k; i++) {
+			ratio *= (double) (m - i) / (n - i);
+		}
+		return ratio;
+	}
+
+
+	private static void fill(long[] keys, SplittableRandom random) {
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = random.nextLong();
+		}
+	}
+
+
+	public static void main(String[] args) {
+		try {
+			Selector.Role role = Selector.Role.DEALER;
+			int threads = 1;
+			int depth = FULL_DEPTH;
+			boolean check = false;
+			int i = 0;
+			while (i < args.length && args[i].startsWith("--")) {
+				if (args[i].equals("--dealer")) role = Selector.Role.DEALER;
+				else if (args[i].equals("--pone")) role = Selector.Role.PONE;
+				else if (args[i].equals("--threads") && i + 1 < args.length) threads = parseInt(args[++i]);
+				else if (args[i].equals("--depth") && i + 1 < args.length) depth = parseInt(args[++i]);
+				else if (args[i].equals("--check")) check = true;
+				else throw new IllegalArgumentException(args[i] + " is an invalid option.\n");
+				i++;
+			}
+			String[] cards = java.util.Arrays.copyOfRange(args, i, args.length);
+			if (cards.length < NUM_PLAY || cards.length > Selector.NUM_CRIB_DEAL)
+				throw new IllegalArgumentException("Please input 4-6 cards\n");
+			Hand startHand = new Hand(cards);
+
+			PeggingSolver solver = new PeggingSolver(threads, 22);
+			long start = System.nanoTime();
+			double[] values = solver.solve(startHand, role, depth);
+			double millis = (System.nanoTime() - start) / 1e6;
+
+			double[] expected = check ? reference(startHand, role, depth) : null;
+
+			Combinations cursor = new Combinations();
+			int k = 0;
+			double worst = 0;
+			for (cursor.reset(startHand.mask(), NUM_PLAY); cursor.next(); k++) {
+				if (check) {
+					System.out.printf("%s %+.4f %+.4f%n", new Hand(cursor.mask()), values[k], expected[k]);
+					worst = Math.max(worst, Math.abs(values[k] - expected[k]));
+				} else {
+					System.out.printf("%s %+.4f%n", new Hand(cursor.mask()), values[k]);
+				}
+			}
+			System.err.printf("%.1f ms, %d positions found in the table, %d searched%n",
+					millis, solver.table().hits(), solver.table().misses());
+			if (solver.pool != null)
+				solver.pool.shutdown();
+			if (check && worst > CHECK_TOLERANCE) {
+				System.out.printf("The search differs from the plain search by %.2e%n", worst);
+				System.exit(1);
+			}
+
+		} catch (IllegalArgumentException e) {
+			System.out.print(e.getMessage());
+			System.exit(1);
+		}
+	}
+
+
+	/** @return the number in an option, checking that it is a number */
+	private static int parseInt(String number) {
+		try {
+			return Integer.parseInt(number);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException(number + " is not a number.\n");
+		}
+	}
+}
@@ -0,0 +1,352 @@
+/** This class is used to choose the cards to keep from a hand of 6 cards with
+ *  the crib counted, like Selector, but within a time limit: an estimate is
+ *  given at once and refined until it is exact or the time is up.
+ *
+ *  The points in hand cost little and are always exact. The crib is what
+ *  costs: C(45, 2) = 990 cribs for every start card and every choice. So:
+ *
+ *  - at once, the choices found in the ScoreCache are exact, and the others
+ *    are estimated halfway between the bounds of their crib (see CribBound);
+ *  - then the start cards are scored in a random order, every crib with each
+ *    of them, and the crib of a choice is estimated by the mean over the
+ *    start cards scored so far, with a confidence interval from their
+ *    variance, narrowed as fewer start cards are left;
+ *  - once every start card is scored the scores are exact, the same as those
+ *    of Selector, and the choice is the one Selector makes.
+ *
+ *  An Estimate of the best choice so far is given to a listener after every
+ *  step, and the future completes with the last one when the estimate is
+ *  exact or the time is up, whichever comes first. A choice scored exactly is
+ *  put in the cache, under the same key as Selector does.
+ *
+ *  Without the crib every choice is scored exactly at once.
+ *
+ * @author Dongsheng Jiang
+ * @login_id DONGSHENGJ
+ */
+
+import java.time.Duration;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+public class ProgressiveSelector {
+
+	// the number of standard deviations of a confidence interval of 95%
+	private static final double Z_95 = 1.96;
+
+
+	// the role of the player, null to ignore the crib
+	private Selector.Role role = null;
+	// the scores of the choices seen before, null not to remember them
+	private ScoreCache cache = null;
+	// the threads refining the estimates
+	private Executor executor = ForkJoinPool.commonPool();
+	// draws the order of the start cards
+	private final SplittableRandom random;
+
+
+	/** Construct a ProgressiveSelector.
+	 *
+	 * @param seed the seed of the order the start cards are scored in.
+	 */
+	public ProgressiveSelector(long seed) {
+		this.random = new SplittableRandom(seed);
+	}
+
+
+	/** set the role of the player, so that the points of the crib are counted.
+	 *
+	 * @param role DEALER or PONE, null to ignore the crib.
+	 * @return this object.
+	 */
+	public ProgressiveSelector crib(Selector.Role role) {
+		this.role = role;
+		return this;
+	}
+
+
+	/** set a cache to look up the scores in, which can be shared with Selector
+	 *  objects with the same role.
+	 *
+	 * @param cache the cache, null not to remember the scores.
+	 * @return this object.
+	 */
+	public ProgressiveSelector cache(ScoreCache cache) {
+		this.cache = cache;
+		return this;
+	}
+
+
+	/** set the threads refining the estimates.
+	 *
+	 * @param executor the executor, the common pool by default.
+	 * @return this object.
+	 */
+	public ProgressiveSelector executor(Executor executor) {
+		if (executor == null)
+			throw new IllegalArgumentException("The executor cannot be null\n");
+		this.executor = executor;
+		return this;
+	}
+
+
+	/** choose the cards to keep from a hand within a time limit.
+	 *
+	 * @param startHand a hand of 4-6 cards, 6 if the crib is counted.
+	 * @param timeout the time to give an answer in.
+	 * @return the estimate of the best choice when it is exact or the time is up.
+	 */
+	public CompletableFuture<Estimate> select(Hand startHand, Duration timeout) {
+		return select(startHand, LiveDeck.without(startHand), timeout, estimate -> {});
+	}
+
+
+	/** choose the cards to keep from a hand within a time limit, when some
+	 *  cards not in hand are known to be out of the deck too, telling a
+	 *  listener every time the estimate is refined.
+	 *
+	 * @param startHand a hand of 4-6 cards, 6 if the crib is counted.
+	 * @param deck the live cards, none of them in hand.
+	 * @param timeout the time to give an answer in.
+	 * @param listener told every estimate, in the thread making it.
+	 * @return the estimate of the best choice when it is exact or the time is up.
+	 */
+	public CompletableFuture<Estimate> select(Hand startHand, LiveDeck deck, Duration timeout,
+			Consumer<Estimate> listener) {
+		check(startHand, deck);
+		long deadline = System.nanoTime() + timeout.toNanos();
+		Evaluation evaluation;
+		synchronized (random) {
+			evaluation = new Evaluation(startHand, deck.mask(), role, cache, deadline, listener, random.split());
+		}
+
+		if (evaluation.publish())
+			return evaluation.future;
+		executor.execute(evaluation);
+		// answer on time even if the work has not been started
+		CompletableFuture.delayedExecutor(Math.max(0, timeout.toNanos()), TimeUnit.NANOSECONDS, Runnable::run)
+				.execute(() -> evaluation.future.complete(evaluation.latest));
+		return evaluation.future;
+	}
+
+
+	/** check that a hand has 4-6 cards, and 6 if the crib is counted, and
+	 *  that there are live cards for the start card and the crib
+	 */
+	private void check(Hand startHand, LiveDeck deck) {
+		if (startHand.getNumCard() < Selector.NUM_KEEP)
+			throw new IllegalArgumentException("Please input 4-6 cards\n");
+		if (role != null && startHand.getNumCard() != Selector.NUM_CRIB_DEAL)
+			throw new IllegalArgumentException("Please input 6 cards to count the crib\n");
+		if ((deck.mask() & startHand.mask()) != 0)
+			throw new IllegalArgumentException("The cards in hand cannot be live cards\n");
+		if (deck.size() < (role == null ? 1 : 1 + 2))
+			throw new IllegalArgumentException("There are not enough live cards left\n");
+	}
+
+
+	/** The scoring of one hand, from the first estimate to the exact scores. */
+	private static class Evaluation implements Runnable {
+
+		private final CompletableFuture<Estimate> future = new CompletableFuture<>();
+		private volatile Estimate latest;
+
+		private final Hand startHand;
+		private final long hand;
+		private final Selector.Role role;
+		private final ScoreCache cache;
+		private final long deadline;
+		private final Consumer<Estimate> listener;
+
+		// the live cards, in the order they are scored as the start card
+		private final int[] starters;
+		// the number of discards of the opponent with each start card
+		private final long numDiscard;
+		private int numScored = 0;
+
+		// for every choice: its positions in hand, the cards kept, the sum of
+		// its points in hand, the sum of its cribs with the start cards scored,
+		// the sum of the squares of their means, the bounds of the sum of the
+		// cribs with the start cards left, and whether its score is exact
+		private final int[] positions;
+		private final long[] keeps;
+		private final long[] handSums;
+		private final long[] cribSums;
+		private final double[] squares;
+		private final long[] minLeft;
+		private final long[] maxLeft;
+		private final boolean[] exact;
+
+		Evaluation(Hand startHand, long live, Selector.Role role, ScoreCache cache, long deadline,
+				Consumer<Estimate> listener, SplittableRandom random) {
+			this.startHand = startHand;
+			this.hand = startHand.mask();
+			this.role = role;
+			this.cache = live == (Card.FULL_DECK & ~hand) ? cache : null;
+			this.deadline = deadline;
+			this.listener = listener;
+
+			starters = new LiveDeck(live).starters();
+			for (int i = starters.length - 1; i > 0; i--) {
+				int j = random.nextInt(i + 1);
+				int starter = starters[i];
+				starters[i] = starters[j];
+				starters[j] = starter;
+			}
+			numDiscard = role == null ? 1 : Combinations.binomial(starters.length - 1, 2);
+
+			int numKeep = (int) Combinations.binomial(startHand.getNumCard(), Selector.NUM_KEEP);
+			positions = new int[numKeep];
+			keeps = new long[numKeep];
+			Selector.choices(startHand, Selector.NUM_KEEP, positions, keeps);
+			handSums = new long[numKeep];
+			cribSums = new long[numKeep];
+			squares = new double[numKeep];
+			minLeft = new long[numKeep];
+			maxLeft = new long[numKeep];
+			exact = new boolean[numKeep];
+
+			for (int k = 0; k < numKeep; k++) {
+				handSums[k] = Calcultor.sumPoints(keeps[k], live);
+				if (role == null) {
+					exact[k] = true;
+					continue;
+				}
+				long score = this.cache != null ? this.cache.get(canonicalKeep(k), canonicalDiscards(k), role.ordinal() + 1)
+						: ScoreCache.MISSING;
+				if (score != ScoreCache.MISSING) {
+					// the score is handSum * numDiscard + sign * cribSum
+					cribSums[k] = (score - handSums[k] * numDiscard) * role.sign();
+					exact[k] = true;
+					continue;
+				}
+				long discards = hand & ~keeps[k];
+				for (int starter : starters) {
+					minLeft[k] += CribBound.min(discards, starter) * numDiscard;
+					maxLeft[k] += CribBound.max(discards, starter) * numDiscard;
+				}
+			}
+		}
+
+		@Override
+		public void run() {
+			try {
+				// every crib with one start card at a time, for all the choices left
+				while (numScored < starters.length && !future.isDone() && System.nanoTime() < deadline) {
+					int s = numScored;
+					for (int k = 0; k < keeps.length; k++) {
+						if (exact[k]) continue;
+						long discards = hand & ~keeps[k];
+						long sum = Selector.cribSum(discards, starters, s);
+						cribSums[k] += sum;
+						squares[k] += Math.pow((double) sum / numDiscard, 2);
+						minLeft[k] -= CribBound.min(discards, starters[s]) * numDiscard;
+						maxLeft[k] -= CribBound.max(discards, starters[s]) * numDiscard;
+					}
+					numScored++;
+					if (numScored < starters.length && publish())
+						return;
+				}
+				if (numScored == starters.length) {
+					for (int k = 0; k < keeps.length; k++) {
+						if (!exact[k] && cache != null)
+							cache.put(canonicalKeep(k), canonicalDiscards(k), role.ordinal() + 1, score(k));
+						exact[k] = true;
+					}
+				}
+				publish();
+				future.complete(latest);
+			} catch (RuntimeException e) {
+				future.completeExceptionally(e);
+			}
+		}
+
+		/** find the best choice so far and tell the listener.
+		 *
+		 * @return whether the best choice is exact, the future being completed then.
+		 */
+		boolean publish() {
+			int best = 0;
+			for (int k = 1; k < keeps.length; k++) {
+				if (better(k, best))
+					best = k;
+			}
+			double[] bounds = bounds(best);
+			latest = new Estimate(Selector.toHand(startHand, positions[best]), bounds[0], bounds[1], bounds[2],
+					allExact(), allExact() ? starters.length : numScored, starters.length);
+			listener.accept(latest);
+			if (latest.exact())
+				future.complete(latest);
+			return latest.exact();
+		}
+
+		/** @return whether every choice is scored exactly */
+		private boolean allExact() {
+			for (boolean e : exact) {
+				if (!e) return false;
+			}
+			return true;
+		}
+
+		/** @return whether a choice is better than another, by their exact
+		 *  scores if both are exact, as Selector does, else by their estimates
+		 */
+		private boolean better(int k, int other) {
+			if (exact[k] && exact[other])
+				return score(k) > score(other)
+						|| (score(k) == score(other) && Selector.order(positions[k]) < Selector.order(positions[other]));
+			double estimate = bounds(k)[0];
+			double otherEstimate = bounds(other)[0];
+			return estimate > otherEstimate
+					|| (estimate == otherEstimate && Selector.order(positions[k]) < Selector.order(positions[other]));
+		}
+
+		/** @return the exact score of a choice, its expected score times the number of cases */
+		private long score(int k) {
+			return role == null ? handSums[k] : handSums[k] * numDiscard + role.sign() * cribSums[k];
+		}
+
+		/** @return the estimate of the expected score of a choice and its lower and upper bounds */
+		private double[] bounds(int k) {
+			int n = starters.length;
+			double hand = (double) handSums[k] / n;
+			if (exact[k]) {
+				double score = (double) score(k) / (n * numDiscard);
+				return new double[] { score, score, score };
+			}
+
+			// the crib for sure, with the exact sum of the start cards scored
+			double numCrib = (double) n * numDiscard;
+			double low = (cribSums[k] + minLeft[k]) / numCrib;
+			double high = (cribSums[k] + maxLeft[k]) / numCrib;
+			double crib = (low + high) / 2;
+			int m = numScored;
+			if (m > 1) {
+				// the start cards are drawn without replacement, so the interval narrows to 0 at n
+				double mean = cribSums[k] / (double) numDiscard / m;
+				double variance = Math.max(0, (squares[k] - m * mean * mean) / (m - 1));
+				double width = Z_95 * Math.sqrt(variance / m * (n - m) / (n - 1));
+				crib = Math.min(high, Math.max(low, mean));
+				low = Math.max(low, mean - width);
+				high = Math.min(high, mean + width);
+			}
+			int sign = role.sign();
+			return new double[] { hand + sign * crib, hand + sign * (sign > 0 ? low : high),
+					hand + sign * (sign > 0 ? high : low) };
+		}
+
+		private long canonicalKeep(int k) {
+			long discards = hand & ~keeps[k];
+			return SuitCanonicalizer.apply(keeps[k], SuitCanonicalizer.permutation(keeps[k], discards));
+		}
+
+		private long canonicalDiscards(int k) {
+			long discards = hand & ~keeps[k];
+			return SuitCanonicalizer.apply(discards, SuitCanonicalizer.permutation(keeps[k], discards));
+		}
+	}
+}
@@ -0,0 +1,117 @@
+/** This class is used to count the points of the rules of 15s, Pairs and Runs
+ *  from the number of cards of each rank, without going through the subsets
+ *  of the cards.
+ *
+ *  Pairs are counted from the number of cards of each rank, Runs are the
+ *  longest stretches of consecutive ranks times the number of ways to pick
+ *  one card of each rank, and 15s are counted by the number of ways to reach
+ *  each sum of values. Suits are never looked at.
+ *
+ *  A RankHistogram object keeps its working arrays, so it can be reused
+ *  for many hands without creating new objects. It is not thread safe.
+ *
+ * @author Dongsheng Jiang
+ * @login_id DONGSHENGJ
+ */
+
+public class RankHistogram {
+
+	// constant declaration
+	private static final int SUM_FOR_15S = 15;
+	private static final int POINTS_FOR_15S = 2;
+	private static final int POINTS_FOR_PAIRS = 2;
+	private static final int MIN_LENGTH_FOR_RUNS = 3;
+
+
+	// record the number of cards of each rank
+	private final int[] counts = new int[Card.NUM_RANK];
+	// record the number of subsets of cards adding up to each sum
+	private final int[] ways = new int[SUM_FOR_15S + 1];
+
+
+	/** count the cards of each rank.
+	 *
+	 * @param cards a mask with bit Card.id() set for every card, including the start card.
+	 * @return this object.
+	 */
+	public RankHistogram set(long cards) {
+		// the four cards of a rank are next to each other in a mask
+		for (int r = 0; r < Card.NUM_RANK; r++) {
+			counts[r] = Long.bitCount(cards >>> (r * Card.NUM_SUIT) & 0xF);
+		}
+		return this;
+	}
+
+
+	/** @return the number of cards of a certain rank */
+	public int count(int rank) {
+		return counts[rank];
+	}
+
+
+	/** calculate the points contributed by "15s" rule
+	 *
+	 * @return a int type representing the points contributed by "15s"
+	 */
+	public int pointsFor15S() {
+		ways[0] = 1;
+		for (int s = 1; s <= SUM_FOR_15S; s++) {
+			ways[s] = 0;
+		}
+
+		// add the cards one by one, every subset reaching s - v reaches s with the new card
+		for (int r = 0; r < Card.NUM_RANK; r++) {
+			int v = Card.valueOf(r * Card.NUM_SUIT);
+			for (int c = 0; c < counts[r]; c++) {
+				for (int s = SUM_FOR_15S; s >= v; s--) {
+					ways[s] += ways[s - v];
+				}
+			}
+		}
+		return ways[SUM_FOR_15S] * POINTS_FOR_15S;
+	}
+
+
+	/** calculate the points contributed by "Pairs" rule
+	 *
+	 * @return a int type representing the points contributed by "Pairs"
+	 */
+	public int pointsForPairs() {
+		int points = 0;
+		for (int r = 0; r < Card.NUM_RANK; r++) {
+			points += counts[r] * (counts[r] - 1) / 2 * POINTS_FOR_PAIRS;
+		}
+		return points;
+	}
+
+
+	/** calculate the points contributed by "Runs" rule
+	 *
+	 * @return a int type representing the points contributed by "Runs"
+	 */
+	public int pointsForRuns() {
+		int points = 0;
+		int r = 0;
+		while (r < Card.NUM_RANK) {
+			// find the next stretch of consecutive ranks
+			int length = 0;
+			int product = 1;
+			while (r < Card.NUM_RANK && counts[r] > 0) {
+				length++;
+				product *= counts[r];
+				r++;
+			}
+			if (length >= MIN_LENGTH_FOR_RUNS) {
+				points += length * product;
+			}
+			r++;
+		}
+		return points;
+	}
+
+
+	/** @return the sum of the points of 15s, Pairs and Runs */
+	public int points() {
+		return pointsFor15S() + pointsForPairs() + pointsForRuns();
+	}
+}
@@ -0,0 +1,54 @@
+/** This class is used to hold one of the best choices of the cards to keep
+ *  found by Selector.top(), with its score.
+ *
+ *  The score is the expected score times the number of cases it is averaged
+ *  over, so it is exact and two choices with the same expected score have
+ *  the same score.
+ *
+ * @author Dongsheng Jiang
+ * @login_id DONGSHENGJ
+ */
+
+public class RankedKeep {
+
+	private final Hand keep;
+	private final long score;
+	private final long numCase;
+
+
+	/** Construct a RankedKeep.
+	 *
+	 * @param keep the cards kept.
+	 * @param score the expected score times the number of cases.
+	 * @param numCase the number of cases.
+	 */
+	public RankedKeep(Hand keep, long score, long numCase) {
+		this.keep = keep;
+		this.score = score;
+		this.numCase = numCase;
+	}
+
+
+	/** @return the cards kept, in the same order as in the hand dealt */
+	public Hand keep() {
+		return keep.clone();
+	}
+
+
+	/** @return the expected score times the number of cases */
+	public long score() {
+		return score;
+	}
+
+
+	/** @return the expected score */
+	public double expectedScore() {
+		return (double) score / numCase;
+	}
+
+
+	@Override
+	public String toString() {
+		return keep + String.format(" %.4f", expectedScore());
+	}
+}
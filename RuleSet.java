@@ -0,0 +1,256 @@
+/** This class is used to describe a variant of the game: how many cards are
+ *  dealt and kept, how the crib is made and how flushes are counted, and to
+ *  count the points of a hand or a crib by those rules.
+ *
+ *  STANDARD is the game of two players this program was written for: 6 cards
+ *  dealt, 4 kept, 2 from each player to the crib, and a flush in the crib
+ *  only counting with the start card. THREE_PLAYER deals 5 cards and each
+ *  player discards 1, the crib getting one more card from the deck. FIVE_CARD
+ *  deals 5 cards and keeps 3, so a hand is counted with 4 cards and the crib
+ *  with 5. Any of them can count the flushes of the crib like those of a hand
+ *  with cribFlush(true).
+ *
+ *  15s, Pairs and Runs only depend on the ranks, so as in ScoreTable the
+ *  points of every set of ranks of the size of a hand or a crib with the start
+ *  card are counted once by RankHistogram and then looked up. A table is only
+ *  made the first time a rule set scores a set of that size, and the tables
+ *  are shared by all the rule sets, so a variant costs nothing per score once
+ *  its tables are made. Flushes and "One for his nob" are counted on masks.
+ *
+ * @author Dongsheng Jiang
+ * @login_id DONGSHENGJ
+ */
+
+import java.util.concurrent.ConcurrentHashMap;
+
+public class RuleSet {
+
+	private static final int POINTS_FOR_NOB = 1;
+	private static final int ID_FOR_NOB = Card.id('J', 'C');
+	// the most cards scored together, a crib of 5 cards and the start card
+	private static final int MAX_SCORED = 6;
+
+	// binomial coefficients used to compute the index of a set of ranks.
+	private static final int[][] BINOMIAL = binomial(Card.NUM_RANK + MAX_SCORED, MAX_SCORED);
+	// the points of 15s, Pairs and Runs of every set of ranks, by the number of cards
+	private static final ConcurrentHashMap<Integer, byte[]> TABLES = new ConcurrentHashMap<>();
+
+
+	public static final RuleSet STANDARD = new RuleSet("standard", 2, 6, 4, 0, false);
+	public static final RuleSet THREE_PLAYER = new RuleSet("three-player", 3, 5, 4, 1, false);
+	public static final RuleSet FIVE_CARD = new RuleSet("five-card", 2, 5, 3, 0, false);
+	private static final RuleSet[] ALL = { STANDARD, THREE_PLAYER, FIVE_CARD };
+
+
+	private final String name;
+	private final int numPlayer;
+	private final int numDealt;
+	private final int numKept;
+	private final int numFromDeck;
+	private final boolean cribFlush;
+	// the points of 15s, Pairs and Runs of a hand and of a crib with the start card,
+	// looked up in TABLES the first time they are needed
+	private volatile byte[] handTable;
+	private volatile byte[] cribTable;
+
+
+	private RuleSet(String name, int numPlayer, int numDealt, int numKept, int numFromDeck, boolean cribFlush) {
+		this.name = name;
+		this.numPlayer = numPlayer;
+		this.numDealt = numDealt;
+		this.numKept = numKept;
+		this.numFromDeck = numFromDeck;
+		this.cribFlush = cribFlush;
+	}
+
+
+	/** find a rule set by its name.
+	 *
+	 * @param name standard, three-player or five-card.
+	 * @return the rule set.
+	 */
+	public static RuleSet named(String name) {
+		for (RuleSet rules : ALL) {
+			if (rules.name.equals(name))
+				return rules;
+		}
+		throw new IllegalArgumentException(name + " is not a rule set, please use standard, three-player or five-card.\n");
+	}
+
+
+	/** set whether a flush in the crib counts without the start card, like in a hand.
+	 *
+	 * @param likeHand true to count the flushes of the crib like those of a hand.
+	 * @return a rule set with the same deal and that rule for the crib.
+	 */
+	public RuleSet cribFlush(boolean likeHand) {
+		if (likeHand == cribFlush)
+			return this;
+		for (RuleSet rules : ALL) {
+			if (rules.numDealt == numDealt && rules.numKept == numKept && rules.numPlayer == numPlayer
+					&& rules.cribFlush == likeHand)
+				return rules;
+		}
+		return new RuleSet(name + (likeHand ? "+crib-flush" : ""), numPlayer, numDealt, numKept, numFromDeck, likeHand);
+	}
+
+
+	/** @return the number of cards dealt to each player */
+	public int numDealt() {
+		return numDealt;
+	}
+
+
+	/** @return the number of cards each player keeps in hand */
+	public int numKept() {
+		return numKept;
+	}
+
+
+	/** @return the number of cards each player puts in the crib */
+	public int numDiscard() {
+		return numDealt - numKept;
+	}
+
+
+	/** @return the number of cards in the crib */
+	public int cribSize() {
+		return numPlayer * numDiscard() + numFromDeck;
+	}
+
+
+	/** @return the number of cards of the crib not put by a player, coming from the others and the deck */
+	public int numUnknownCrib() {
+		return cribSize() - numDiscard();
+	}
+
+
+	/** count the points of a hand.
+	 *
+	 * @param hand a mask of the cards in hand.
+	 * @param startCard the index of the start card.
+	 * @return the total points.
+	 */
+	public int handPoints(long hand, int startCard) {
+		byte[] table = handTable;
+		if (table == null)
+			table = handTable = table(numKept + 1);
+		return nob(hand, startCard) + flush(hand, startCard, numKept, true)
+				+ rankPoints(table, hand | 1L << startCard, numKept + 1);
+	}
+
+
+	/** count the points of a crib.
+	 *
+	 * @param crib a mask of the cards in the crib.
+	 * @param startCard the index of the start card.
+	 * @return the total points.
+	 */
+	public int cribPoints(long crib, int startCard) {
+		byte[] table = cribTable;
+		if (table == null)
+			table = cribTable = table(cribSize() + 1);
+		return nob(crib, startCard) + flush(crib, startCard, cribSize(), cribFlush)
+				+ rankPoints(table, crib | 1L << startCard, cribSize() + 1);
+	}
+
+
+	/** @return 1 for a jack of the suit of the start card among some cards */
+	private static int nob(long cards, int startCard) {
+		return (cards & 1L << ID_FOR_NOB + Card.suitOf(startCard)) != 0 ? POINTS_FOR_NOB : 0;
+	}
+
+
+	/** count a flush: a point for every card if all the cards are of one suit,
+	 *  and one more if the start card is too.
+	 *
+	 * @param cards a mask of the cards of a hand or a crib.
+	 * @param startCard the index of the start card.
+	 * @param numCard the number of cards.
+	 * @param withoutStarter whether the cards count without the start card.
+	 * @return the points.
+	 */
+	private static int flush(long cards, int startCard, int numCard, boolean withoutStarter) {
+		int suit = Card.suitOf(Long.numberOfTrailingZeros(cards));
+		if ((cards & ~Card.suitMask(suit)) != 0)
+			return 0;
+		if (Card.suitOf(startCard) == suit)
+			return numCard + 1;
+		return withoutStarter ? numCard : 0;
+	}
+
+
+	/** @return the points of 15s, Pairs and Runs of some cards looked up in a table */
+	private static int rankPoints(byte[] table, long cards, int numCard) {
+		// the cards are ordered by rank in a mask, so the ranks come out sorted
+		int index = 0;
+		for (int i = 0; i < numCard; i++) {
+			index += BINOMIAL[Card.rankOf(Long.numberOfTrailingZeros(cards)) + i][i + 1];
+			cards &= cards - 1;
+		}
+		return table[index];
+	}
+
+
+	/** @return the table for sets of some number of cards, made the first time it is needed */
+	private static byte[] table(int numCard) {
+		return TABLES.computeIfAbsent(numCard, RuleSet::compile);
+	}
+
+
+	/** count all the sets of ranks of some number of cards with the rules of 15s, Pairs and Runs. */
+	private static byte[] compile(int numCard) {
+		byte[] points = new byte[BINOMIAL[Card.NUM_RANK + numCard - 1][numCard]];
+		fill(points, new int[numCard], 0, 0, new RankHistogram());
+		return points;
+	}
+
+
+	/** recursively choose the rank of the card at position pos, which
+	 *  should be no less than the rank of the previous card.
+	 */
+	private static void fill(byte[] points, int[] ranks, int pos, int minRank, RankHistogram histogram) {
+		int numCard = ranks.length;
+		if (pos == numCard) {
+			long cards = 0;
+			int index = 0;
+			for (int i = 0; i < numCard; i++) {
+				// cards with the same rank get different suits
+				int suit = 0;
+				for (int j = 0; j < i; j++) {
+					if (ranks[j] == ranks[i]) suit++;
+				}
+				// there are only four cards of each rank
+				if (suit == Card.NUM_SUIT) return;
+				cards |= 1L << (ranks[i] * Card.NUM_SUIT + suit);
+				index += BINOMIAL[ranks[i] + i][i + 1];
+			}
+			points[index] = (byte) histogram.set(cards).points();
+			return;
+		}
+
+		for (int r = minRank; r < Card.NUM_RANK; r++) {
+			ranks[pos] = r;
+			fill(points, ranks, pos + 1, r, histogram);
+		}
+	}
+
+
+	/** compute the binomial coefficients C(n, k) for all n < maxN and k <= maxK. */
+	private static int[][] binomial(int maxN, int maxK) {
+		int[][] c = new int[maxN][maxK + 1];
+		for (int n = 0; n < maxN; n++) {
+			c[n][0] = 1;
+			for (int k = 1; k <= maxK && k <= n; k++) {
+				c[n][k] = c[n - 1][k - 1] + (k < n ? c[n - 1][k] : 0);
+			}
+		}
+		return c;
+	}
+
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
@@ -0,0 +1,71 @@
+/** Compare the scoring engines on every possible set of five cards.
+ *
+ *  The points of 15s, Pairs and Runs are counted for all the C(52, 5) sets
+ *  of five cards by the subset rules in Calcultor, by RankHistogram and by
+ *  ScoreTable. The program reports the time each of them takes and exits
+ *  with status 1 if any of them disagrees with the subset rules.
+ *
+ *  usage: java ScoreBenchmark
+ *
+ * @author Dongsheng Jiang
+ * @login_id DONGSHENGJ
+ */
+
+public class ScoreBenchmark {
+
+	// number of cards in each set
+	private static final int NUM_CARD = 5;
+
+
+	/** @return all the sets of five cards as masks */
+	private static long[] allHands() {
+		long[] hands = new long[2598960];
+		int n = 0;
+		for (int a = 0; a < Card.NUM_CARD; a++)
+			for (int b = a + 1; b < Card.NUM_CARD; b++)
+				for (int c = b + 1; c < Card.NUM_CARD; c++)
+					for (int d = c + 1; d < Card.NUM_CARD; d++)
+						for (int e = d + 1; e < Card.NUM_CARD; e++)
+							hands[n++] = 1L << a | 1L << b | 1L << c | 1L << d | 1L << e;
+		return hands;
+	}
+
+
+	/** print the time taken by an engine */
+	private static void report(String engine, long nanos, int numHand) {
+		System.out.printf("%-10s %8.1f ms %10.1f ns/hand%n", engine, nanos / 1e6, (double) nanos / numHand);
+	}
+
+
+	public static void main(String[] args) {
+		long[] hands = allHands();
+		int[] points = new int[hands.length];
+		RankHistogram histogram = new RankHistogram();
+
+		// make sure the table is built before timing
+		ScoreTable.points(hands[0]);
+
+		long start = System.nanoTime();
+		for (int i = 0; i < hands.length; i++) {
+			points[i] = Calcultor.rankPoints(hands[i]);
+		}
+		report("subset", System.nanoTime() - start, hands.length);
+
+		int mismatch = 0;
+		start = System.nanoTime();
+		for (int i = 0; i < hands.length; i++) {
+			if (histogram.set(hands[i]).points() != points[i]) mismatch++;
+		}
+		report("histogram", System.nanoTime() - start, hands.length);
+
+		start = System.nanoTime();
+		for (int i = 0; i < hands.length; i++) {
+			if (ScoreTable.points(hands[i]) != points[i]) mismatch++;
+		}
+		report("table", System.nanoTime() - start, hands.length);
+
+		System.out.println(hands.length + " hands of " + NUM_CARD + " cards, " + mismatch + " mismatches");
+		if (mismatch != 0)
+			System.exit(1);
+	}
+}
@@ -0,0 +1,180 @@
+/** This class is used to remember the scores of the choices of cards to keep,
+ *  so that a choice seen before is not scored again.
+ *
+ *  A score is stored for a hand of cards kept, the dead cards (those out of
+ *  the deck but not in hand, such as the discards) and a tag telling how it
+ *  was scored. The cache is bounded: when it is full the entry used least
+ *  recently is evicted. It is split into segments with a lock each, so it can
+ *  be shared by many threads, and counts its hits, misses and evictions.
+ *
+ *  Hands should be put in their canonical form by SuitCanonicalizer first,
+ *  so that all the hands differing only by their suits share one entry.
+ *
+ * @author Dongsheng Jiang
+ * @login_id DONGSHENGJ
+ */
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ScoreCache {
+
+	// returned by get() when a score is not in the cache
+	public static final long MISSING = Long.MIN_VALUE;
+	// number of segments, a power of 2
+	private static final int NUM_SEGMENT = 16;
+
+
+	private final Segment[] segments = new Segment[NUM_SEGMENT];
+	private final int capacity;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+
+	/** Construct a ScoreCache.
+	 *
+	 * @param capacity the maximum number of scores stored.
+	 */
+	public ScoreCache(int capacity) {
+		if (capacity < NUM_SEGMENT)
+			throw new IllegalArgumentException("The cache should hold at least " + NUM_SEGMENT + " scores\n");
+		this.capacity = capacity;
+		for (int i = 0; i < NUM_SEGMENT; i++) {
+			segments[i] = new Segment(capacity / NUM_SEGMENT);
+		}
+	}
+
+
+	/** find a score in the cache.
+	 *
+	 * @param hand a mask of the cards kept in hand.
+	 * @param dead a mask of the dead cards.
+	 * @param tag a number telling how the score was computed.
+	 * @return the score, MISSING if it is not in the cache.
+	 */
+	public long get(long hand, long dead, int tag) {
+		Key key = new Key(hand, dead, tag);
+		Segment segment = segment(key);
+		Long score;
+		synchronized (segment) {
+			score = segment.get(key);
+		}
+		if (score == null) {
+			misses.increment();
+			return MISSING;
+		}
+		hits.increment();
+		return score;
+	}
+
+
+	/** store a score in the cache.
+	 *
+	 * @param hand a mask of the cards kept in hand.
+	 * @param dead a mask of the dead cards.
+	 * @param tag a number telling how the score was computed.
+	 * @param score the score.
+	 */
+	public void put(long hand, long dead, int tag, long score) {
+		Key key = new Key(hand, dead, tag);
+		Segment segment = segment(key);
+		synchronized (segment) {
+			segment.put(key, score);
+		}
+	}
+
+
+	/** @return the number of scores found in the cache */
+	public long hits() {
+		return hits.sum();
+	}
+
+
+	/** @return the number of scores not found in the cache */
+	public long misses() {
+		return misses.sum();
+	}
+
+
+	/** @return the number of scores evicted to make room for new ones */
+	public long evictions() {
+		return evictions.sum();
+	}
+
+
+	/** @return the number of scores in the cache */
+	public int size() {
+		int size = 0;
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+
+
+	private Segment segment(Key key) {
+		return segments[key.hashCode() >>> 28 & NUM_SEGMENT - 1];
+	}
+
+
+	@Override
+	public String toString() {
+		return "cache: " + size() + "/" + capacity + " scores, " + hits() + " hits, "
+				+ misses() + " misses, " + evictions() + " evictions";
+	}
+
+
+	// a part of the cache, keeping its entries from the least to the most recently used.
+	private class Segment extends LinkedHashMap<Key, Long> {
+
+		private final int capacity;
+
+		Segment(int capacity) {
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, Long> eldest) {
+			if (size() > capacity) {
+				evictions.increment();
+				return true;
+			}
+			return false;
+		}
+	}
+
+
+	// the cards and the tag a score is stored for.
+	private static final class Key {
+
+		private final long hand;
+		private final long dead;
+		private final int tag;
+
+		Key(long hand, long dead, int tag) {
+			this.hand = hand;
+			this.dead = dead;
+			this.tag = tag;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof Key))
+				return false;
+			Key otherKey = (Key) other;
+			return hand == otherKey.hand && dead == otherKey.dead && tag == otherKey.tag;
+		}
+
+		@Override
+		public int hashCode() {
+			long h = hand * 0x9E3779B97F4A7C15L + dead;
+			h = (h ^ h >>> 29) * 0xBF58476D1CE4E5B9L + tag;
+			return (int) (h ^ h >>> 32);
+		}
+	}
+}
@@ -0,0 +1,137 @@
+/** This class is used to count how often each score from 0 to 29 comes up,
+ *  such as the points of the cards kept with each of the start cards.
+ *
+ *  The scores are added one at a time to an array of counts, along with
+ *  their sum and the sum of their squares, so the mean, the variance, the
+ *  percentiles and the chances of scoring at least some points can be read
+ *  at any time. Nothing is created when a score is added and the same object
+ *  can be cleared and used again.
+ *
+ * @author Dongsheng Jiang
+ * @login_id DONGSHENGJ
+ */
+
+public class ScoreDistribution {
+
+	// the greatest points of a hand or a crib
+	public static final int MAX_SCORE = 29;
+
+
+	// the number of times each score has come up
+	private final int[] counts = new int[MAX_SCORE + 1];
+	private int total = 0;
+	private long sum = 0;
+	private long sumOfSquares = 0;
+
+
+	/** forget all the scores added. */
+	public void clear() {
+		for (int i = 0; i <= MAX_SCORE; i++) {
+			counts[i] = 0;
+		}
+		total = 0;
+		sum = 0;
+		sumOfSquares = 0;
+	}
+
+
+	/** add a score.
+	 *
+	 * @param points a score from 0 to 29.
+	 */
+	public void add(int points) {
+		if (points < 0 || points > MAX_SCORE)
+			throw new IllegalArgumentException("A score should be from 0 to " + MAX_SCORE + "\n");
+		counts[points]++;
+		total++;
+		sum += points;
+		sumOfSquares += points * points;
+	}
+
+
+	/** @return the number of times a score has come up */
+	public int count(int points) {
+		return points < 0 || points > MAX_SCORE ? 0 : counts[points];
+	}
+
+
+	/** @return the number of scores added */
+	public int total() {
+		return total;
+	}
+
+
+	/** @return the sum of the scores added */
+	public long sum() {
+		return sum;
+	}
+
+
+	/** @return the mean of the scores, 0 if there is none */
+	public double mean() {
+		return total == 0 ? 0 : (double) sum / total;
+	}
+
+
+	/** @return the variance of the scores, 0 if there is none */
+	public double variance() {
+		if (total == 0)
+			return 0;
+		// computed from integers, so it does not lose precision
+		return (double) (sumOfSquares * total - sum * sum) / ((double) total * total);
+	}
+
+
+	/** @return the lowest score added, -1 if there is none */
+	public int min() {
+		for (int i = 0; i <= MAX_SCORE; i++) {
+			if (counts[i] != 0) return i;
+		}
+		return -1;
+	}
+
+
+	/** @return the highest score added, -1 if there is none */
+	public int max() {
+		for (int i = MAX_SCORE; i >= 0; i--) {
+			if (counts[i] != 0) return i;
+		}
+		return -1;
+	}
+
+
+	/** find the lowest score with at least a percentage of the scores at or below it.
+	 *
+	 * @param percent a number from 0 to 100.
+	 * @return the score, -1 if there is none.
+	 */
+	public int percentile(double percent) {
+		if (percent < 0 || percent > 100)
+			throw new IllegalArgumentException("A percentile should be from 0 to 100\n");
+		if (total == 0)
+			return -1;
+		long rank = Math.max(1, (long) Math.ceil(percent * total / 100));
+		long below = 0;
+		for (int i = 0; i <= MAX_SCORE; i++) {
+			below += counts[i];
+			if (below >= rank) return i;
+		}
+		return MAX_SCORE;
+	}
+
+
+	/** @return the number of scores of at least some points */
+	public int countAtLeast(int points) {
+		int count = 0;
+		for (int i = Math.max(points, 0); i <= MAX_SCORE; i++) {
+			count += counts[i];
+		}
+		return count;
+	}
+
+
+	/** @return the chance of scoring at least some points, 0 if there is no score */
+	public double atLeast(int points) {
+		return total == 0 ? 0 : (double) countAtLeast(points) / total;
+	}
+}
@@ -0,0 +1,146 @@
+/** This class is used to look up the points a hand of cards plus the start card
+ *  gets from the rules of 15s, Pairs and Runs.
+ *
+ *  These three rules only depend on the ranks of the five cards, so there are
+ *  only C(17, 5) = 6188 different cases instead of C(52, 5). All of them are
+ *  counted once with RankHistogram when this class is loaded, after that 
+ *  scoring a hand is a single array read. The points of each of the three
+ *  rules are kept too, for the reports that split the points by rule.
+ *
+ * @author Dongsheng Jiang
+ * @login_id DONGSHENGJ
+ */
+
+public class ScoreTable {
+
+	// number of cards counted together, four in hand plus the start card.
+	public static final int NUM_CARD = 5;
+	// number of different ranks.
+	private static final int NUM_RANK = Card.NUM_RANK;
+
+	// binomial coefficients used to compute the index of a set of ranks.
+	private static final int[][] BINOMIAL = binomial(NUM_RANK + NUM_CARD, NUM_CARD);
+	// the points of 15s and of Pairs for every possible set of five ranks,
+	// the points of Runs being the rest of POINTS.
+	private static final byte[] FIFTEENS = new byte[BINOMIAL[NUM_RANK + NUM_CARD - 1][NUM_CARD]];
+	private static final byte[] PAIRS = new byte[FIFTEENS.length];
+	// the points for every possible set of five ranks.
+	private static final byte[] POINTS = build();
+
+
+	/** compute the binomial coefficients C(n, k) for all n < maxN and k <= maxK. */
+	private static int[][] binomial(int maxN, int maxK) {
+		int[][] c = new int[maxN][maxK + 1];
+		for (int n = 0; n < maxN; n++) {
+			c[n][0] = 1;
+			for (int k = 1; k <= maxK && k <= n; k++) {
+				c[n][k] = c[n - 1][k - 1] + (k < n ? c[n - 1][k] : 0);
+			}
+		}
+		return c;
+	}
+
+
+	/** compute the index of a set of five ranks in the table.
+	 *
+	 *  the ranks are mapped to distinct numbers by adding their position,
+	 *  so the index is the position of that combination in the
+	 *  combinatorial number system.
+	 *
+	 * @param ranks five ranks from 0 (Ace) to 12 (King) sorted in ascending order.
+	 * @return a unique index from 0 to 6187.
+	 */
+	public static int index(int[] ranks) {
+		int index = 0;
+		for (int i = 0; i < NUM_CARD; i++) {
+			index += BINOMIAL[ranks[i] + i][i + 1];
+		}
+		return index;
+	}
+
+
+	/** count all the sets of five ranks with the rules of 15s, Pairs and Runs. */
+	private static byte[] build() {
+		byte[] points = new byte[BINOMIAL[NUM_RANK + NUM_CARD - 1][NUM_CARD]];
+		int[] ranks = new int[NUM_CARD];
+		fill(points, ranks, 0, 0, new RankHistogram());
+		return points;
+	}
+
+
+	/** recursively choose the rank of the card at position pos, which
+	 *  should be no less than the rank of the previous card.
+	 */
+	private static void fill(byte[] points, int[] ranks, int pos, int minRank, RankHistogram histogram) {
+
+		// all ranks have been chosen, count the points of these cards
+		if (pos == NUM_CARD) {
+			long cards = 0;
+			for (int i = 0; i < NUM_CARD; i++) {
+				// cards with the same rank get different suits
+				int suit = 0;
+				for (int j = 0; j < i; j++) {
+					if (ranks[j] == ranks[i]) suit++;
+				}
+				// there are only four cards of each rank
+				if (suit == Card.NUM_SUIT) return;
+				cards |= 1L << (ranks[i] * Card.NUM_SUIT + suit);
+			}
+			int index = index(ranks);
+			points[index] = (byte) histogram.set(cards).points();
+			FIFTEENS[index] = (byte) histogram.pointsFor15S();
+			PAIRS[index] = (byte) histogram.pointsForPairs();
+			return;
+		}
+
+		for (int r = minRank; r < NUM_RANK; r++) {
+			ranks[pos] = r;
+			fill(points, ranks, pos + 1, r, histogram);
+		}
+	}
+
+
+	/** find the points of a hand of four cards and a start card got from
+	 *  the rules of 15s, Pairs and Runs.
+	 *
+	 * @param cards a mask with the bit Card.id() set for each of the five cards.
+	 * @return the sum of the points of 15s, Pairs and Runs.
+	 */
+	public static int points(long cards) {
+		return POINTS[index(cards)];
+	}
+
+
+	/** find the index of the ranks of a hand of four cards and a start card.
+	 *
+	 * @param cards a mask with the bit Card.id() set for each of the five cards.
+	 * @return a unique index from 0 to 6187, the same as index(int[]).
+	 */
+	public static int index(long cards) {
+		// the cards are ordered by rank in a mask, so the ranks come out sorted
+		int index = 0;
+		for (int i = 0; i < NUM_CARD; i++) {
+			index += BINOMIAL[Card.rankOf(Long.numberOfTrailingZeros(cards)) + i][i + 1];
+			cards &= cards - 1;
+		}
+		return index;
+	}
+
+
+	/** @return the points of 15s of the set of five ranks at an index */
+	public static int pointsFor15S(int index) {
+		return FIFTEENS[index];
+	}
+
+
+	/** @return the points of Pairs of the set of five ranks at an index */
+	public static int pointsForPairs(int index) {
+		return PAIRS[index];
+	}
+
+
+	/** @return the points of Runs of the set of five ranks at an index */
+	public static int pointsForRuns(int index) {
+		return POINTS[index] - FIFTEENS[index] - PAIRS[index];
+	}
+}
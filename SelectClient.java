@@ -0,0 +1,150 @@
+/** Load a SelectServer running on the local machine with deals read from a
+ *  file, and report how fast it answers.
+ *
+ *  Every connection sends all the deals of the file, a batch of lines at a
+ *  time, reading the answers to a batch before sending the next one. The
+ *  program reports the deals answered per second and the percentiles of the
+ *  time between sending a batch and reading its last answer, then the
+ *  statistics of the server itself.
+ *
+ *  usage: java SelectClient [--connections n] [--batch n] port file
+ *
+ * @author Dongsheng Jiang
+ * @login_id DONGSHENGJ
+ */
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+public class SelectClient {
+
+	private static final String CONNECTIONS_OPTION = "--connections";
+	private static final String BATCH_OPTION = "--batch";
+
+
+	/** send all the deals over a new connection, recording the time of every batch.
+	 *
+	 * @param port the port of the server.
+	 * @param deals the lines to send.
+	 * @param batchSize the number of lines sent before reading the answers.
+	 * @param latencies where the time of every batch is recorded.
+	 * @return the number of answers starting with "error".
+	 * @throws IOException if the server cannot be reached.
+	 */
+	private static int run(int port, byte[][] deals, int batchSize, LatencyHistogram latencies) throws IOException {
+		int errors = 0;
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+			socket.setTcpNoDelay(true);
+			OutputStream output = socket.getOutputStream();
+			BufferedReader input = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+			for (int from = 0; from < deals.length; from += batchSize) {
+				int to = Math.min(deals.length, from + batchSize);
+				long start = System.nanoTime();
+				for (int i = from; i < to; i++) {
+					output.write(deals[i]);
+				}
+				output.flush();
+				for (int i = from; i < to; i++) {
+					String answer = input.readLine();
+					if (answer == null)
+						throw new IOException("The server closed the connection");
+					if (answer.startsWith("error")) errors++;
+				}
+				latencies.record(System.nanoTime() - start);
+			}
+		}
+		return errors;
+	}
+
+
+	/** @return the answer of the server to the line STATS */
+	private static String stats(int port) throws IOException {
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+			socket.getOutputStream().write("STATS\n".getBytes());
+			return new BufferedReader(new InputStreamReader(socket.getInputStream())).readLine();
+		}
+	}
+
+
+	public static void main(String[] args) {
+		try {
+			int connections = 1;
+			int batchSize = 1;
+			int i = 0;
+			while (i + 1 < args.length && args[i].startsWith("--")) {
+				if (args[i].equals(CONNECTIONS_OPTION)) connections = parseInt(args[++i]);
+				else if (args[i].equals(BATCH_OPTION)) batchSize = parseInt(args[++i]);
+				else throw new IllegalArgumentException(args[i] + " is an invalid option.\n");
+				i++;
+			}
+			if (args.length != i + 2 || connections < 1 || batchSize < 1)
+				throw new IllegalArgumentException("Usage: java SelectClient [--connections n] [--batch n] port file\n");
+			int port = parseInt(args[i]);
+
+			java.util.List<String> lines = Files.readAllLines(Paths.get(args[i + 1]));
+			byte[][] deals = new byte[lines.size()][];
+			for (int d = 0; d < deals.length; d++) {
+				deals[d] = (lines.get(d) + "\n").getBytes();
+			}
+
+			// every connection sends the deals from its own thread
+			LatencyHistogram latencies = new LatencyHistogram();
+			int[] errors = new int[connections];
+			IOException[] failures = new IOException[connections];
+			Thread[] threads = new Thread[connections];
+			for (int c = 0; c < connections; c++) {
+				int connection = c;
+				int size = batchSize;
+				threads[c] = new Thread(() -> {
+					try {
+						errors[connection] = run(port, deals, size, latencies);
+					} catch (IOException e) {
+						failures[connection] = e;
+					}
+				});
+			}
+			long start = System.nanoTime();
+			for (Thread thread : threads) thread.start();
+			for (Thread thread : threads) thread.join();
+			long nanos = System.nanoTime() - start;
+
+			int numError = 0;
+			for (int c = 0; c < connections; c++) {
+				if (failures[c] != null) throw failures[c];
+				numError += errors[c];
+			}
+			long numDeal = (long) deals.length * connections;
+			System.out.printf("%d deals over %d connections in batches of %d: %.1f deals/s, %d errors%n",
+					numDeal, connections, batchSize, numDeal * 1e9 / nanos, numError);
+			System.out.printf("batch round trip: p50=%.1fus p90=%.1fus p99=%.1fus max=%.1fus%n",
+					latencies.percentile(50) / 1e3, latencies.percentile(90) / 1e3,
+					latencies.percentile(99) / 1e3, latencies.max() / 1e3);
+			System.out.println("server: " + stats(port));
+
+		} catch (IllegalArgumentException e) {
+			System.out.print(e.getMessage());
+			System.exit(1);
+		} catch (IOException e) {
+			System.out.println(e.getMessage());
+			System.exit(1);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+
+	/** @return the number in an option, checking that it is a number */
+	private static int parseInt(String number) {
+		try {
+			return Integer.parseInt(number);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException(number + " is not a number.\n");
+		}
+	}
+}
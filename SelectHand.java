@@ -12,56 +12,318 @@ be kept taken with each of the possible start cards
  * The output string and input string both consist of two characters representing
  * number and suit respectively.  
  * 
+ * With the option --batch, deals are read one per line from a file, or from
+ * standard input if no file is given, and the cards to keep are written one
+ * line per deal in the same order. See BatchSelector.
+ * 
+ * With the option --threads n, the choices are scored by n threads. With the
+ * option --dealer or --pone, the expected points of the crib are added or taken
+ * away for a hand of 6 cards. With the option --cache n, the scores of up to
+ * n choices are remembered for the hands that follow. See Selector. With the
+ * option --table file, the cards to keep from 6 cards are looked up in a table
+ * made by KeepTable, unless the crib is counted.
+ * 
+ * With the option --stats csv or --stats json, every choice of the cards to
+ * keep is written with the distribution of its points in hand, one line each,
+ * and the option --at-least n sets the points the chance of scoring at least
+ * is written for. The crib is not counted, so --dealer and --pone cannot be
+ * given with them. See BatchSelector. With the option --top n, the n best
+ * choices for the cards on the command line are written best first, one
+ * line each with the expected score.
+ * With the option --by-card, every start card is scored on its own instead of
+ * once per rank, which gives the same choices more slowly. With the option
+ * --dead cards, where cards are separated by commas such as AS,TD, those
+ * cards are known to be out of the deck as well as the cards in hand.
+ * With the option --rules standard, three-player or five-card, the cards are
+ * chosen for that variant of the game, and with the option --crib-flush a
+ * flush in the crib counts without the start card. See RuleSet. With the
+ * option --deadline ms, the cards are chosen within that many milliseconds,
+ * written with their expected score and its bounds if it is not yet exact,
+ * using the threads and the cache of --threads and --cache but not --table
+ * or --by-card. See ProgressiveSelector.
+ * 
+ * With the option --serve port, the program keeps running and answers deals
+ * sent over TCP connections to that port of the local machine, using the
+ * other options for all of them. It does not take --batch, --stats, --top,
+ * --dead, --rules or --deadline. See SelectServer and SelectClient.
+ * 
+ * With -Dcribbage.metrics=true, the calls and the time of every scoring rule
+ * are counted and reported on the standard error. See Metrics.
+ * 
  * @author Dongsheng Jiang
  * @login_id DONGSHENGJ
  */
 
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
 public class SelectHand {
+	
+	// option to read many deals from a file or standard input
+	private static final String BATCH_OPTION = "--batch";
+	// option to set the number of threads
+	private static final String THREADS_OPTION = "--threads";
+	// option to remember the scores of up to n choices
+	private static final String CACHE_OPTION = "--cache";
+	// option to look up the hands of 6 cards in a table made by KeepTable
+	private static final String TABLE_OPTION = "--table";
+	// options to write the statistics of every choice
+	private static final String STATS_OPTION = "--stats";
+	private static final String AT_LEAST_OPTION = "--at-least";
+	private static final int DEFAULT_AT_LEAST = 10;
+	// option to score every start card on its own
+	private static final String BY_CARD_OPTION = "--by-card";
+	// option to answer deals sent to a port of the local machine
+	private static final String SERVE_OPTION = "--serve";
+	// option to write the n best choices
+	private static final String TOP_OPTION = "--top";
+	// option to give the cards known to be out of the deck
+	private static final String DEAD_OPTION = "--dead";
+	// options to set the rules of the game
+	private static final String RULES_OPTION = "--rules";
+	private static final String CRIB_FLUSH_OPTION = "--crib-flush";
+	// option to answer within some milliseconds
+	private static final String DEADLINE_OPTION = "--deadline";
+	// options to count the crib as the dealer or the pone
+	private static final String DEALER_OPTION = "--dealer";
+	private static final String PONE_OPTION = "--pone";
+	
+	
 	public static void main(String[] args) {
 		
 		try {
 			
-			if (args.length < 4 || args.length > 6)
-				throw new IllegalArgumentException("Please input 4-6 cards\n");
+			Metrics.start();
+			Selector selector = new Selector();
+			boolean batch = false;
+			BatchSelector.Format format = null;
+			int atLeast = DEFAULT_AT_LEAST;
+			boolean atLeastGiven = false;
+			int numTop = -1;
+			int port = -1;
+			long dead = 0;
+			RuleSet rules = RuleSet.STANDARD;
+			boolean cribFlush = false;
+			Selector.Role role = null;
+			int deadline = -1;
+			int threads = -1;
+			boolean byCard = false;
+			boolean tabled = false;
+			
+			// read the options before the cards
+			int i = 0;
+			while (i < args.length && args[i].startsWith("--")) {
+				if (args[i].equals(BATCH_OPTION)) {
+					batch = true;
+				}
+				else if (args[i].equals(BY_CARD_OPTION)) {
+					selector.byRank(false);
+					byCard = true;
+				}
+				else if (args[i].equals(DEALER_OPTION)) {
+					role = Selector.Role.DEALER;
+					selector.crib(role);
+				}
+				else if (args[i].equals(PONE_OPTION)) {
+					role = Selector.Role.PONE;
+					selector.crib(role);
+				}
+				else if (args[i].equals(CRIB_FLUSH_OPTION)) {
+					cribFlush = true;
+				}
+				else if (args[i].equals(RULES_OPTION) && i + 1 < args.length) {
+					rules = RuleSet.named(args[++i]);
+				}
+				else if (args[i].equals(THREADS_OPTION) && i + 1 < args.length) {
+					threads = parseInt(args[++i]);
+					selector.threads(threads);
+				}
+				else if (args[i].equals(CACHE_OPTION) && i + 1 < args.length) {
+					selector.cache(new ScoreCache(parseInt(args[++i])));
+				}
+				else if (args[i].equals(TABLE_OPTION) && i + 1 < args.length) {
+					selector.table(KeepTable.open(args[++i]));
+					tabled = true;
+				}
+				else if (args[i].equals(STATS_OPTION) && i + 1 < args.length) {
+					format = parseFormat(args[++i]);
+				}
+				else if (args[i].equals(AT_LEAST_OPTION) && i + 1 < args.length) {
+					atLeast = parseInt(args[++i]);
+					atLeastGiven = true;
+				}
+				else if (args[i].equals(SERVE_OPTION) && i + 1 < args.length) {
+					port = parseInt(args[++i]);
+				}
+				else if (args[i].equals(DEAD_OPTION) && i + 1 < args.length) {
+					dead = parseCards(args[++i]);
+				}
+				else if (args[i].equals(DEADLINE_OPTION) && i + 1 < args.length) {
+					deadline = parseInt(args[++i]);
+				}
+				else if (args[i].equals(TOP_OPTION) && i + 1 < args.length) {
+					numTop = parseInt(args[++i]);
+				}
+				else {
+					throw new IllegalArgumentException(args[i] + " is an invalid option.\n");
+				}
+				i++;
+			}
+			String[] cards = Arrays.copyOfRange(args, i, args.length);
+			
+			if (dead != 0 && (batch || port >= 0 || format != null))
+				throw new IllegalArgumentException(DEAD_OPTION + " only works with the cards on the command line.\n");
+			rules = rules.cribFlush(cribFlush);
+			if (rules != RuleSet.STANDARD && (batch || port >= 0 || format != null))
+				throw new IllegalArgumentException(RULES_OPTION + " only works with the cards on the command line.\n");
+			selector.rules(rules);
+			if (atLeastGiven && format == null)
+				throw new IllegalArgumentException(AT_LEAST_OPTION + " only works with " + STATS_OPTION + ".\n");
+			// the statistics are of the points in hand only
+			if (format != null && role != null)
+				throw new IllegalArgumentException(STATS_OPTION + " does not count the crib, so it does not work with "
+						+ DEALER_OPTION + " or " + PONE_OPTION + ".\n");
+			if (numTop >= 0 && (batch || format != null))
+				throw new IllegalArgumentException(TOP_OPTION + " does not work with " + BATCH_OPTION + " or "
+						+ STATS_OPTION + ".\n");
+			if (deadline >= 0 && (batch || port >= 0 || format != null || numTop >= 0 || rules != RuleSet.STANDARD))
+				throw new IllegalArgumentException(DEADLINE_OPTION + " only works with the cards on the command line.\n");
+			if (deadline >= 0 && (tabled || byCard))
+				throw new IllegalArgumentException(DEADLINE_OPTION + " does not work with " + TABLE_OPTION + " or "
+						+ BY_CARD_OPTION + ".\n");
+			
+			if (port >= 0) {
+				// every deal is answered with the best choice and its expected score
+				if (batch || format != null || numTop >= 0)
+					throw new IllegalArgumentException(SERVE_OPTION + " does not work with " + BATCH_OPTION + ", "
+							+ STATS_OPTION + " or " + TOP_OPTION + ".\n");
+				if (cards.length > 0)
+					throw new IllegalArgumentException("Usage: java SelectHand [options] --serve port\n");
+				SelectServer server = new SelectServer(selector, port);
+				System.err.println("listening on port " + server.port());
+				server.serve();
+				return;
+			}
+			
+			if (batch) {
+				batch(new BatchSelector(selector).statistics(format, atLeast), selector, cards);
+				return;
+			}
+			
+			if (cards.length < rules.numKept() || cards.length > rules.numDealt())
+				throw new IllegalArgumentException("Please input " + rules.numKept() + "-" + rules.numDealt() + " cards\n");
+			
+			if (format != null) {
+				// the cards on the command line make a batch of one deal
+				InputStream input = new ByteArrayInputStream(String.join(" ", cards).getBytes());
+				new BatchSelector(selector).statistics(format, atLeast).run(input, System.out);
+				return;
+			}
 			
 			// create a hand of cards containing all the input cards.
-			Hand startHand = new Hand(args);
-			// get all the cards not in hand.
-			Card[] restCard = startHand.restCard();
-	
-			/* create a List data structure to store all the possible 4-cards combination representing
-			 * the cards to be kept in hand.
-			 */
-			List<Hand> list = Calcultor.combination(startHand, 4); 
-			
-			// initialize object and variable that will be used in the loop.  
-			double max = -1;
-			Hand maxHand = null;
-			
-			// loop though all possible combinations of cards that can be kept in hand
-			// with each possible start card, find the one with maximum expected score. 
-			for (Hand hand : list) {
-				// initialize
-				int sum = 0;
-				
-				for (Card startCard : restCard)
-					sum += Calcultor.totalPoints(hand, startCard);
-				
-				double average = (double)sum/restCard.length; // calculate the expected score
-				
-				if ( average > max) {
-					max = average;
-					maxHand = hand;
-				}
-				
+			Hand startHand = new Hand(cards);
+			LiveDeck deck = LiveDeck.without(startHand).kill(dead);
+			
+			if (deadline >= 0) {
+				ProgressiveSelector progressive = new ProgressiveSelector(System.nanoTime()).crib(role)
+						.cache(selector.cache());
+				if (threads > 0)
+					progressive.executor(new ForkJoinPool(threads));
+				System.out.println(progressive.select(startHand, deck, Duration.ofMillis(deadline), estimate -> {}).join());
+				return;
+			}
+			
+			if (numTop >= 0) {
+				for (RankedKeep keep : selector.top(startHand, numTop, deck)) {
+					System.out.println(keep);
+				}
+				return;
 			}
 			
-			System.out.println(maxHand);
+			System.out.println(selector.select(startHand, deck));
 			
 		} catch (IllegalArgumentException e) {
 			System.out.print(e.getMessage());
 			System.exit(1);
+		} catch (IOException e) {
+			System.out.println(e.getMessage());
+			System.exit(1);
 		}
 		
 	}
+	
+	
+	/** read deals from the file given after the options, or from standard input,
+	 *  and write the cards to keep for each of them to standard output.
+	 */
+	private static void batch(BatchSelector batchSelector, Selector selector, String[] files) {
+		
+		try {
+			
+			if (files.length > 1)
+				throw new IllegalArgumentException("Usage: java SelectHand --batch [file]\n");
+			
+			InputStream input = files.length == 1 ? new FileInputStream(files[0]) : System.in;
+			try {
+				batchSelector.run(input, System.out);
+			} finally {
+				input.close();
+			}
+			
+			if (selector.cache() != null)
+				System.err.println(selector.cache());
+			
+		} catch (IOException e) {
+			System.out.println(e.getMessage());
+			System.exit(1);
+		}
+	}
+	
+	
+	/** @return the format named in an option */
+	private static BatchSelector.Format parseFormat(String name) {
+		for (BatchSelector.Format format : BatchSelector.Format.values()) {
+			if (format.name().equalsIgnoreCase(name))
+				return format;
+		}
+		throw new IllegalArgumentException(name + " is not a format, please use csv or json.\n");
+	}
+	
+	
+	/** @return a mask of the cards in an option, separated by commas */
+	private static long parseCards(String cards) {
+		long mask = 0;
+		for (String card : cards.split(",")) {
+			if (card.length() != 2)
+				throw new IllegalArgumentException(card + " is an invalid input.\n"
+												+ "Please check and try again\n");
+			mask |= 1L << Card.parse(card.charAt(0), card.charAt(1));
+		}
+		return mask;
+	}
+	
+	
+	/** @return the number in an option, checking that it is a number */
+	private static int parseInt(String number) {
+		try {
+			return Integer.parseInt(number);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException(number + " is not a number.\n");
+		}
+	}
+	
+	
+	/** choose 4 cards to keep from a hand of 4-6 cards with the greatest expected score.
+	 * 
+	 * @param startHand a hand of 4-6 cards.
+	 * @return a hand of the 4 cards to keep, in the same order as in startHand.
+	 */
+	public static Hand select(Hand startHand) {
+		return new Selector().select(startHand);
+	}
 }
@@ -0,0 +1,168 @@
+/** This class is used to answer deals sent over TCP connections to a port of
+ *  the local machine, so that many requests share one running program and
+ *  the tables and the cache it has warmed up.
+ *
+ *  The protocol is made of lines. A client sends deals one per line, as
+ *  many as it likes before reading the answers, and gets one line for each
+ *  of them in the same order: the 4 cards to keep followed by their expected
+ *  score, or "error: " and the reason. The line STATS is answered by the
+ *  number of deals answered since the server started, the deals answered
+ *  per second and the percentiles of the time taken to answer a deal.
+ *
+ *  Every connection is handled by a thread of its own, a virtual thread
+ *  when the Java runtime has them (Java 21 and later) and a pooled thread
+ *  otherwise. All the connections share one Selector, so it should not be
+ *  changed once the server has started.
+ *
+ *  usage: java SelectHand [options] --serve port
+ *
+ * @author Dongsheng Jiang
+ * @login_id DONGSHENGJ
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class SelectServer implements AutoCloseable {
+
+	// the command asking for the statistics of the server
+	private static final byte[] STATS = "STATS".getBytes();
+	// the longest line read, longer ones are cut
+	private static final int MAX_LINE = 1 << 10;
+	private static final int BUFFER_SIZE = 1 << 16;
+
+
+	private final Selector selector;
+	private final ServerSocket serverSocket;
+	private final ExecutorService executor = newThreadPerTaskExecutor();
+	// the time taken to answer every deal, on every connection
+	private final LatencyHistogram latencies = new LatencyHistogram();
+
+
+	/** Construct a SelectServer listening on a port of the local machine.
+	 *
+	 * @param selector the Selector shared by all the connections.
+	 * @param port the port, 0 to let the system choose one.
+	 * @throws IOException if the port cannot be listened on.
+	 */
+	public SelectServer(Selector selector, int port) throws IOException {
+		this.selector = selector;
+		this.serverSocket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+	}
+
+
+	/** @return the port listened on */
+	public int port() {
+		return serverSocket.getLocalPort();
+	}
+
+
+	/** @return the times taken to answer the deals */
+	public LatencyHistogram latencies() {
+		return latencies;
+	}
+
+
+	/** accept connections until the server is closed. */
+	public void serve() {
+		try {
+			while (!serverSocket.isClosed()) {
+				Socket socket = serverSocket.accept();
+				executor.execute(() -> handle(socket));
+			}
+		} catch (IOException e) {
+			// the server socket has been closed
+		}
+	}
+
+
+	/** stop accepting connections and let the current ones finish. */
+	@Override
+	public void close() throws IOException {
+		serverSocket.close();
+		executor.shutdown();
+	}
+
+
+	/** answer the lines of a connection until the client closes it */
+	private void handle(Socket socket) {
+		BatchSelector batch = new BatchSelector(selector).expectedScore(true).latencies(latencies);
+		byte[] in = new byte[BUFFER_SIZE];
+		byte[] line = new byte[MAX_LINE];
+		int lineLength = 0;
+
+		try (Socket s = socket) {
+			s.setTcpNoDelay(true);
+			InputStream input = s.getInputStream();
+			OutputStream output = s.getOutputStream();
+			int n;
+			while ((n = input.read(in)) > 0) {
+				for (int i = 0; i < n; i++) {
+					if (in[i] != '\n') {
+						if (lineLength < MAX_LINE) line[lineLength++] = in[i];
+						continue;
+					}
+					answer(batch, line, lineLength, output);
+					lineLength = 0;
+				}
+				// answer what has been read before waiting for more input
+				if (input.available() == 0)
+					batch.flush(output);
+			}
+			if (lineLength > 0)
+				answer(batch, line, lineLength, output);
+			batch.flush(output);
+		} catch (IOException e) {
+			// the client has gone away, nothing is left to answer
+		}
+	}
+
+
+	/** answer a line, either a deal or a command */
+	private void answer(BatchSelector batch, byte[] line, int length, OutputStream output) throws IOException {
+		int end = length;
+		if (end > 0 && line[end - 1] == '\r')
+			end--;
+		if (!isCommand(line, end, STATS)) {
+			batch.answer(line, 0, end, output);
+			return;
+		}
+		// the answers before it go first
+		batch.flush(output);
+		output.write((latencies + "\n").getBytes());
+	}
+
+
+	/** @return whether a line is a command, whatever the case of its letters */
+	private static boolean isCommand(byte[] line, int length, byte[] command) {
+		if (length != command.length)
+			return false;
+		for (int i = 0; i < length; i++) {
+			if (Character.toUpperCase(line[i]) != command[i])
+				return false;
+		}
+		return true;
+	}
+
+
+	/** @return an executor starting a virtual thread for every task if the Java
+	 *  runtime has them, or reusing a pool of threads otherwise
+	 */
+	private static ExecutorService newThreadPerTaskExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return Executors.newCachedThreadPool(task -> {
+				Thread thread = new Thread(task, "select-connection");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+	}
+}
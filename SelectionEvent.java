@@ -0,0 +1,40 @@
+/** This class is a Java Flight Recorder event written for every choice of
+ *  the cards to keep made by Selector.select().
+ *
+ *  It is only filled in and written while a recording with it enabled is
+ *  running, such as one started with -XX:StartFlightRecording, so it costs
+ *  next to nothing otherwise. The duration of the event is the time taken
+ *  to make the choice.
+ *
+ * @author Dongsheng Jiang
+ * @login_id DONGSHENGJ
+ */
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("cribbage.Selection")
+@Label("Selection")
+@Category("Cribbage")
+@Description("A choice of the cards to keep from a hand")
+public class SelectionEvent extends Event {
+
+	@Label("Hand")
+	@Description("The cards dealt")
+	String hand;
+
+	@Label("Keep")
+	@Description("The cards kept")
+	String keep;
+
+	@Label("Role")
+	@Description("DEALER or PONE if the crib is counted, empty otherwise")
+	String role;
+
+	@Label("From Table")
+	@Description("Whether the choice was looked up in a KeepTable")
+	boolean fromTable;
+}
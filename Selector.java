@@ -0,0 +1,946 @@
+/** This class is used to choose the 4 cards to keep from a hand of 4-6 cards
+ *  with the greatest expected score.
+ *
+ *  The expected score of a choice is the average of its total points with
+ *  each of the cards not in hand as the start card. The choices are compared
+ *  by the sum of these points, which is exact. Among choices with the same
+ *  sum, the one coming first in the reflected Gray code order of the
+ *  positions of their cards in hand is kept, which is the order the first
+ *  versions of this program listed the choices in. So the choice does not
+ *  depend on the order the choices are scored in.
+ *
+ *  For a hand of 6 cards the two cards not kept go to the crib. If the
+ *  player's role is set, the expected points of the crib are added for the
+ *  dealer and taken away for the pone. They are averaged over every start
+ *  card and every pair of cards the opponent can discard, all the cards not
+ *  in hand being equally likely, which is C(45, 2) * 46 = 45540 cribs for
+ *  each choice.
+ *
+ *  Cards known to be out of the deck besides those in hand, such as cards
+ *  seen in the play, can be given in a LiveDeck, and then only the live
+ *  cards are used as start cards and discards of the opponent.
+ *
+ *  The points in hand are counted once for each rank of start card, weighted
+ *  by the number of start cards of that rank, unless byRank(false) is set.
+ *  A hand of 4 cards is then counted by StarterScorer, for all the ranks at
+ *  once with the Vector API when the jdk.incubator.vector module is added.
+ *
+ *  Another variant of the game can be set with rules(), such as three
+ *  players keeping 4 of 5 cards or the five-card game keeping 3 of 5. Its
+ *  choices are scored by the points of its RuleSet, every start card and
+ *  every set of cards the others and the deck can put in the crib being
+ *  equally likely, without the table, the cache or the bounds of top(),
+ *  which are only made for the standard game.
+ *
+ *  Every choice is counted in Metrics when it is on, and written as a
+ *  SelectionEvent to a flight recording when one is running.
+ *
+ *  The scoring can be spread over several threads, each choice and each
+ *  start card being independent. It gives the same choice as one thread.
+ *  The scores can also be kept in a ScoreCache, under the canonical form of
+ *  the cards kept and discarded, so a choice seen before with other suits
+ *  is not scored again, and the best choices of the hands of 6 cards can be
+ *  looked up in a KeepTable instead.
+ *
+ * @author Dongsheng Jiang
+ * @login_id DONGSHENGJ
+ */
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+public class Selector {
+
+	// number of cards to keep in hand
+	public static final int NUM_KEEP = 4;
+	// number of cards in hand when two of them go to the crib
+	public static final int NUM_CRIB_DEAL = 6;
+	// number of scores computed by one task before it stops splitting the work
+	private static final int TASK_SIZE = 256;
+	// sums the points of a hand with every start card, in vectors when the Vector API is there
+	private static final ThreadLocal<StarterScorer> SCORER = ThreadLocal.withInitial(StarterScorer::create);
+
+
+	// enumerate the roles of a player, deciding whether the crib is the player's own.
+	public static enum Role {
+		DEALER(1),
+		PONE(-1);
+
+		// 1 if the points of the crib are added, -1 if they are taken away
+		private final int sign;
+
+		Role(int sign) {
+			this.sign = sign;
+		}
+
+		/** @return 1 if the points of the crib are added, -1 if they are taken away */
+		int sign() {
+			return sign;
+		}
+	}
+
+
+	// the threads used to score the choices, null to score in the calling thread
+	private ForkJoinPool pool = null;
+	// the role of the player, null to ignore the crib
+	private Role role = null;
+	// the scores of the choices seen before, null not to remember them
+	private ScoreCache cache = null;
+	// the best choices of all the deals of 6 cards, null to score them
+	private KeepTable table = null;
+	// whether the start cards are scored once per rank instead of one at a time
+	private boolean byRank = true;
+	// the rules of the game, how many cards are kept and how the crib is made
+	private RuleSet rules = RuleSet.STANDARD;
+
+
+	/** Construct a Selector scoring in the calling thread. */
+	public Selector() {}
+
+
+	/** set the number of threads used to score the choices.
+	 *
+	 * @param threads the number of threads, 1 to score in the calling thread.
+	 * @return this object.
+	 */
+	public Selector threads(int threads) {
+		if (threads < 1)
+			throw new IllegalArgumentException("The number of threads should be at least 1\n");
+		if (pool != null)
+			pool.shutdown();
+		pool = threads == 1 ? null : new ForkJoinPool(threads);
+		return this;
+	}
+
+
+	/** set the role of the player, so that the points of the crib are counted.
+	 *
+	 * @param role DEALER or PONE, null to ignore the crib.
+	 * @return this object.
+	 */
+	public Selector crib(Role role) {
+		this.role = role;
+		return this;
+	}
+
+
+	/** set a cache to remember the scores of the choices, which can be shared
+	 *  by many Selector objects with the same settings.
+	 *
+	 * @param cache the cache, null not to remember the scores.
+	 * @return this object.
+	 */
+	public Selector cache(ScoreCache cache) {
+		this.cache = cache;
+		return this;
+	}
+
+
+	/** set whether the points in hand are counted once for each rank of start
+	 *  card and weighted by the number of start cards of that rank, which gives
+	 *  the same sums with about a third of the scoring. See Calcultor.sumPoints().
+	 *
+	 * @param byRank true to count once per rank, false to count every start card.
+	 * @return this object.
+	 */
+	public Selector byRank(boolean byRank) {
+		this.byRank = byRank;
+		return this;
+	}
+
+
+	/** set a table of the best choices, used instead of scoring for the hands
+	 *  of 6 cards when the crib is not counted.
+	 *
+	 * @param table the table, null to score every hand.
+	 * @return this object.
+	 */
+	public Selector table(KeepTable table) {
+		this.table = table;
+		return this;
+	}
+
+
+	/** set the rules of the game the choices are made for.
+	 *
+	 * @param rules the rule set, RuleSet.STANDARD for the game of two players keeping 4 of 6 cards.
+	 * @return this object.
+	 */
+	public Selector rules(RuleSet rules) {
+		if (rules == null)
+			throw new IllegalArgumentException("The rule set cannot be null\n");
+		this.rules = rules;
+		return this;
+	}
+
+
+	/** @return the cache remembering the scores, null if there is none */
+	public ScoreCache cache() {
+		return cache;
+	}
+
+
+	/** choose 4 cards to keep from a hand of 4-6 cards with the greatest expected score.
+	 *
+	 * @param startHand a hand of 4-6 cards.
+	 * @return a hand of the 4 cards to keep, in the same order as in startHand.
+	 */
+	public Hand select(Hand startHand) {
+		return select(startHand, LiveDeck.without(startHand));
+	}
+
+
+	/** choose 4 cards to keep from a hand of 4-6 cards with the greatest
+	 *  expected score, when some cards not in hand are known to be out of the
+	 *  deck too. The start card and the discards of the opponent can only be
+	 *  live cards.
+	 *
+	 *  The scores are only looked up in the table and in the cache when the
+	 *  cards in hand are the only dead cards.
+	 *
+	 * @param startHand a hand of 4-6 cards.
+	 * @param deck the live cards, none of them in hand.
+	 * @return a hand of the 4 cards to keep, in the same order as in startHand.
+	 */
+	public Hand select(Hand startHand, LiveDeck deck) {
+		return best(startHand, deck).keep();
+	}
+
+
+	/** choose 4 cards to keep from a hand of 4-6 cards as select() does, with
+	 *  their expected score.
+	 *
+	 * @param startHand a hand of 4-6 cards.
+	 * @return the cards to keep, in the same order as in startHand, and their score.
+	 */
+	public RankedKeep best(Hand startHand) {
+		return best(startHand, LiveDeck.without(startHand));
+	}
+
+
+	/** choose 4 cards to keep from a hand of 4-6 cards as select(Hand, LiveDeck)
+	 *  does, with their expected score.
+	 *
+	 * @param startHand a hand of 4-6 cards.
+	 * @param deck the live cards, none of them in hand.
+	 * @return the cards to keep, in the same order as in startHand, and their score.
+	 */
+	public RankedKeep best(Hand startHand, LiveDeck deck) {
+		SelectionEvent event = new SelectionEvent();
+		event.begin();
+		long start = Metrics.ENABLED ? System.nanoTime() : 0;
+		long startBytes = Metrics.ENABLED ? Metrics.allocatedBytes() : 0;
+
+		check(startHand, deck);
+		boolean fromTable = table != null && role == null && rules == RuleSet.STANDARD
+				&& startHand.getNumCard() == NUM_CRIB_DEAL
+				&& onlyHandDead(startHand.mask(), deck.mask());
+		RankedKeep best = fromTable ? table.best(startHand) : choose(startHand, deck.mask());
+
+		if (Metrics.ENABLED)
+			Metrics.record(Metrics.Probe.SELECT, start, startBytes);
+		event.end();
+		if (event.shouldCommit()) {
+			event.hand = startHand.toString();
+			event.keep = best.keep().toString();
+			event.role = role == null ? "" : role.name();
+			event.fromTable = fromTable;
+			event.commit();
+		}
+		return best;
+	}
+
+
+	/** score all the choices of the cards to keep from a hand and choose the best one */
+	private RankedKeep choose(Hand startHand, long live) {
+
+		// get all the live cards, each of them can be the start card.
+		int[] starters = cards(live);
+
+		int numKeep = (int) Combinations.binomial(startHand.getNumCard(), rules.numKept());
+		int[] positions = new int[numKeep];
+		long[] keeps = new long[numKeep];
+		choices(startHand, rules.numKept(), positions, keeps);
+
+		long[] scores = rules == RuleSet.STANDARD ? score(keeps, startHand.mask(), live, starters)
+				: scoreByRules(keeps, startHand.mask(), live);
+
+		// find the one with maximum expected score.
+		int max = 0;
+		for (int k = 1; k < numKeep; k++) {
+			if (better(scores[k], positions[k], scores[max], positions[max]))
+				max = k;
+		}
+		return new RankedKeep(toHand(startHand, positions[max]), scores[max],
+				Long.bitCount(live) * numCrib(rules, role, live));
+	}
+
+
+	/** find the choices of the cards to keep with the greatest expected scores,
+	 *  best first, in the same order as select() would choose them.
+	 *
+	 *  The choices are scored from the one with the greatest upper bound on
+	 *  its score, and a choice is no longer scored once its bound shows that
+	 *  it cannot be among the best, so most of the cribs of the other choices
+	 *  are not counted. The choices are scored in the calling thread.
+	 *
+	 * @param startHand a hand of 4-6 cards.
+	 * @param numTop the number of choices wanted.
+	 * @return the best choices, at most numTop of them.
+	 */
+	public RankedKeep[] top(Hand startHand, int numTop) {
+		return top(startHand, numTop, LiveDeck.without(startHand));
+	}
+
+
+	/** find the choices of the cards to keep with the greatest expected scores,
+	 *  when some cards not in hand are known to be out of the deck too. See
+	 *  select(Hand, LiveDeck).
+	 *
+	 * @param startHand a hand of 4-6 cards.
+	 * @param numTop the number of choices wanted.
+	 * @param deck the live cards, none of them in hand.
+	 * @return the best choices, at most numTop of them.
+	 */
+	public RankedKeep[] top(Hand startHand, int numTop, LiveDeck deck) {
+
+		check(startHand, deck);
+		if (numTop < 1)
+			throw new IllegalArgumentException("The number of choices should be at least 1\n");
+		if (rules != RuleSet.STANDARD)
+			return topByRules(startHand, numTop, deck.mask());
+
+		long hand = startHand.mask();
+		long live = deck.mask();
+		int[] starters = cards(live);
+		// the scores in the cache are for the cards in hand being the only dead cards
+		ScoreCache cache = onlyHandDead(hand, live) ? this.cache : null;
+		int numKeep = (int) Combinations.binomial(startHand.getNumCard(), NUM_KEEP);
+		int[] positions = new int[numKeep];
+		long[] keeps = new long[numKeep];
+		choices(startHand, NUM_KEEP, positions, keeps);
+
+		// every start card is used with the same number of discards of the opponent
+		long numDiscard = role == null ? 1 : Combinations.binomial(starters.length - 1, 2);
+
+		// the scores known from the cache, and an upper bound for the others
+		long[] scores = new long[numKeep];
+		long[] bounds = new long[numKeep];
+		int tag = role == null ? 0 : role.ordinal() + 1;
+		for (int k = 0; k < numKeep; k++) {
+			scores[k] = ScoreCache.MISSING;
+			if (cache != null) {
+				long discards = hand & ~keeps[k];
+				int permutation = SuitCanonicalizer.permutation(keeps[k], discards);
+				scores[k] = cache.get(SuitCanonicalizer.apply(keeps[k], permutation),
+						SuitCanonicalizer.apply(discards, permutation), tag);
+			}
+			if (scores[k] == ScoreCache.MISSING && role == null && byRank)
+				// counting once per rank costs less than bounding
+				scores[k] = handSum(keeps[k], live, starters);
+			if (scores[k] != ScoreCache.MISSING)
+				bounds[k] = scores[k];
+			else if (role == null)
+				bounds[k] = (long) maxPoints(keeps[k], live) * starters.length;
+			else
+				bounds[k] = handSum(keeps[k], live, starters) * numDiscard
+						+ role.sign * cribBound(hand & ~keeps[k], starters, 0, role.sign);
+		}
+
+		// go through the choices from the greatest bound
+		int[] byBound = new int[numKeep];
+		for (int k = 0; k < numKeep; k++) {
+			int i = k;
+			for (; i > 0 && bounds[byBound[i - 1]] < bounds[k]; i--) {
+				byBound[i] = byBound[i - 1];
+			}
+			byBound[i] = k;
+		}
+
+		// the best choices so far, best first
+		int[] top = new int[Math.min(numTop, numKeep)];
+		int numFound = 0;
+		for (int k : byBound) {
+			boolean full = numFound == top.length;
+			int last = top[top.length - 1];
+			if (full && !better(bounds[k], positions[k], scores[last], positions[last]))
+				continue;
+
+			if (scores[k] == ScoreCache.MISSING) {
+				long score = full ? score(keeps[k], positions[k], hand, live, starters, numDiscard, scores[last], positions[last])
+						: score(keeps[k], positions[k], hand, live, starters, numDiscard, Long.MIN_VALUE, 0);
+				if (score == ScoreCache.MISSING)
+					continue;
+				scores[k] = score;
+				if (cache != null) {
+					long discards = hand & ~keeps[k];
+					int permutation = SuitCanonicalizer.permutation(keeps[k], discards);
+					cache.put(SuitCanonicalizer.apply(keeps[k], permutation),
+							SuitCanonicalizer.apply(discards, permutation), tag, score);
+				}
+			}
+
+			// put it in its place among the best ones
+			int i = full ? top.length - 1 : numFound++;
+			for (; i > 0 && better(scores[k], positions[k], scores[top[i - 1]], positions[top[i - 1]]); i--) {
+				top[i] = top[i - 1];
+			}
+			top[i] = k;
+		}
+
+		RankedKeep[] ranked = new RankedKeep[numFound];
+		for (int i = 0; i < numFound; i++) {
+			ranked[i] = new RankedKeep(toHand(startHand, positions[top[i]]), scores[top[i]],
+					starters.length * numDiscard);
+		}
+		return ranked;
+	}
+
+
+	/** find the best choices of the cards to keep under rules other than the
+	 *  standard ones, scoring all of them.
+	 *
+	 * @param startHand a hand of cards.
+	 * @param numTop the number of choices wanted.
+	 * @param live a mask of the live cards.
+	 * @return the best choices, at most numTop of them.
+	 */
+	private RankedKeep[] topByRules(Hand startHand, int numTop, long live) {
+		int numKeep = (int) Combinations.binomial(startHand.getNumCard(), rules.numKept());
+		int[] positions = new int[numKeep];
+		long[] keeps = new long[numKeep];
+		choices(startHand, rules.numKept(), positions, keeps);
+		long[] scores = scoreByRules(keeps, startHand.mask(), live);
+
+		// the best choices, best first
+		int[] top = new int[Math.min(numTop, numKeep)];
+		int numFound = 0;
+		for (int k = 0; k < numKeep; k++) {
+			int last = top[top.length - 1];
+			if (numFound == top.length && !better(scores[k], positions[k], scores[last], positions[last]))
+				continue;
+			int i = numFound == top.length ? top.length - 1 : numFound++;
+			for (; i > 0 && better(scores[k], positions[k], scores[top[i - 1]], positions[top[i - 1]]); i--) {
+				top[i] = top[i - 1];
+			}
+			top[i] = k;
+		}
+
+		long numCase = Long.bitCount(live) * numCrib(rules, role, live);
+		RankedKeep[] ranked = new RankedKeep[numFound];
+		for (int i = 0; i < numFound; i++) {
+			ranked[i] = new RankedKeep(toHand(startHand, positions[top[i]]), scores[top[i]], numCase);
+		}
+		return ranked;
+	}
+
+
+	/** score a choice of the cards to keep, unless it turns out not to be
+	 *  better than another choice.
+	 *
+	 * @param keep a mask of the cards kept.
+	 * @param positions a mask of the positions in hand of the cards kept.
+	 * @param hand a mask of all the cards in hand.
+	 * @param live a mask of the live cards.
+	 * @param starters the indices of all the live cards.
+	 * @param numDiscard the number of discards of the opponent with each start card.
+	 * @param toBeat the score of the other choice, Long.MIN_VALUE if there is none.
+	 * @param toBeatPositions the positions in hand of the cards of the other choice.
+	 * @return the score, ScoreCache.MISSING if it is not better than the other choice.
+	 */
+	private long score(long keep, int positions, long hand, long live, int[] starters, long numDiscard,
+			long toBeat, int toBeatPositions) {
+		int n = starters.length;
+
+		if (role == null) {
+			// no start card adds more than the greatest points of the hand
+			int max = maxPoints(keep, live);
+			int sum = 0;
+			for (int s = 0; s < n; s++) {
+				sum += Calcultor.totalPoints(keep, starters[s]);
+				if (!better(sum + (long) max * (n - 1 - s), positions, toBeat, toBeatPositions))
+					return ScoreCache.MISSING;
+			}
+			return sum;
+		}
+
+		// the cribs are counted one start card at a time, the others being bounded
+		long discards = hand & ~keep;
+		long handScore = handSum(keep, live, starters) * numDiscard;
+		long cribSum = 0;
+		for (int s = 0; s < n; s++) {
+			cribSum += cribSum(discards, starters, s);
+			long bound = handScore + role.sign * (cribSum + cribBound(discards, starters, s + 1, role.sign));
+			if (!better(bound, positions, toBeat, toBeatPositions))
+				return ScoreCache.MISSING;
+		}
+		return handScore + role.sign * cribSum;
+	}
+
+
+	/** @return the greatest points a hand of 4 cards can get with any live start card */
+	private static int maxPoints(long keep, long live) {
+		int max = 0;
+		for (int rank = 0; rank < Card.NUM_RANK; rank++) {
+			// the rank part is the same for every card of a rank still in the deck
+			long left = live >>> Card.NUM_SUIT * rank & 0xFL;
+			if (left != 0)
+				max = Math.max(max, Calcultor.totalPoints(keep, rank * Card.NUM_SUIT + Long.numberOfTrailingZeros(left)));
+		}
+		// the flush and the nob may need a start card of another suit
+		return max + 1 + 1;
+	}
+
+
+	/** bound the sum of the points of the crib with some of the start cards.
+	 *
+	 * @param discards a mask of the two cards the player puts in the crib.
+	 * @param starters the indices of all the live cards.
+	 * @param from the position of the first start card to use.
+	 * @param sign 1 for an upper bound, -1 for a lower bound.
+	 * @return the bound.
+	 */
+	private static long cribBound(long discards, int[] starters, int from, int sign) {
+		long numDiscard = Combinations.binomial(starters.length - 1, 2);
+		long bound = 0;
+		for (int s = from; s < starters.length; s++) {
+			bound += sign > 0 ? CribBound.max(discards, starters[s]) : CribBound.min(discards, starters[s]);
+		}
+		return bound * numDiscard;
+	}
+
+
+	/** @return whether a choice has a greater score than another, or the same
+	 *  score and comes first in the order of the choices
+	 */
+	private static boolean better(long score, int positions, long otherScore, int otherPositions) {
+		return score > otherScore || (score == otherScore && order(positions) < order(otherPositions));
+	}
+
+
+	/** check that a hand has 4-6 cards, and 6 if the crib is counted, or the
+	 *  numbers of cards kept and dealt by the rules, and that there are live
+	 *  cards for the start card and the crib
+	 */
+	private void check(Hand startHand, LiveDeck deck) {
+		int numCard = startHand.getNumCard();
+		if (numCard < rules.numKept() || numCard > rules.numDealt())
+			throw new IllegalArgumentException("Please input " + rules.numKept() + "-" + rules.numDealt() + " cards\n");
+		if (role != null && numCard != rules.numDealt())
+			throw new IllegalArgumentException("Please input " + rules.numDealt() + " cards to count the crib\n");
+		if ((deck.mask() & startHand.mask()) != 0)
+			throw new IllegalArgumentException("The cards in hand cannot be live cards\n");
+		if (deck.size() < (role == null ? 1 : 1 + rules.numUnknownCrib()))
+			throw new IllegalArgumentException("There are not enough live cards left\n");
+	}
+
+
+	/** @return whether the cards in hand are the only cards not live */
+	private static boolean onlyHandDead(long hand, long live) {
+		return live == (Card.FULL_DECK & ~hand);
+	}
+
+
+	/** go through all the possible combinations representing the cards to be
+	 *  kept in hand, by the positions of the cards in hand.
+	 *
+	 * @param startHand a hand of 4-6 cards.
+	 * @param numKept the number of cards kept, 4 in the standard game.
+	 * @param positions filled with a mask of the positions in hand of each choice.
+	 * @param keeps filled with a mask of the cards kept by each choice.
+	 */
+	static void choices(Hand startHand, int numKept, int[] positions, long[] keeps) {
+		Combinations cursor = new Combinations();
+		int k = 0;
+		for (cursor.reset((1L << startHand.getNumCard()) - 1, numKept); cursor.next(); k++) {
+			positions[k] = (int) cursor.mask();
+			keeps[k] = 0;
+			for (int i = 0; i < numKept; i++) {
+				keeps[k] |= 1L << startHand.cardAt(cursor.element(i));
+			}
+		}
+	}
+
+
+	/** score some choices of the cards to keep, looking them up in the cache
+	 *  first if there is one.
+	 *
+	 * @param keeps masks of the cards kept for each choice.
+	 * @param hand a mask of all the cards in hand.
+	 * @param live a mask of the live cards.
+	 * @param starters the indices of all the live cards.
+	 * @return the score of each choice, which is its expected score times the number of cases.
+	 */
+	private long[] score(long[] keeps, long hand, long live, int[] starters) {
+		if (cache == null || !onlyHandDead(hand, live))
+			return compute(keeps, hand, live, starters);
+
+		// the choices differing only by their suits share a score in the cache
+		int tag = role == null ? 0 : role.ordinal() + 1;
+		long[] scores = new long[keeps.length];
+		long[] canonicalKeeps = new long[keeps.length];
+		long[] canonicalDiscards = new long[keeps.length];
+		long[] missed = new long[keeps.length];
+		int numMissed = 0;
+		for (int k = 0; k < keeps.length; k++) {
+			long discards = hand & ~keeps[k];
+			int permutation = SuitCanonicalizer.permutation(keeps[k], discards);
+			canonicalKeeps[k] = SuitCanonicalizer.apply(keeps[k], permutation);
+			canonicalDiscards[k] = SuitCanonicalizer.apply(discards, permutation);
+			scores[k] = cache.get(canonicalKeeps[k], canonicalDiscards[k], tag);
+			if (scores[k] == ScoreCache.MISSING)
+				missed[numMissed++] = keeps[k];
+		}
+		if (numMissed == 0)
+			return scores;
+
+		// score the choices not in the cache, in the same order
+		long[] computed = compute(Arrays.copyOf(missed, numMissed), hand, live, starters);
+		for (int k = 0, m = 0; k < keeps.length; k++) {
+			if (scores[k] == ScoreCache.MISSING) {
+				scores[k] = computed[m++];
+				cache.put(canonicalKeeps[k], canonicalDiscards[k], tag, scores[k]);
+			}
+		}
+		return scores;
+	}
+
+
+	/** score some choices of the cards to keep.
+	 *
+	 * @param keeps masks of the cards kept for each choice.
+	 * @param hand a mask of all the cards in hand.
+	 * @param live a mask of the live cards.
+	 * @param starters the indices of all the live cards.
+	 * @return the score of each choice, which is its expected score times the number of cases.
+	 */
+	private long[] compute(long[] keeps, long hand, long live, int[] starters) {
+		int[] sums;
+		if (pool == null || byRank) {
+			sums = new int[keeps.length];
+			for (int k = 0; k < keeps.length; k++) {
+				sums[k] = handSum(keeps[k], live, starters);
+			}
+		}
+		else {
+			sums = pool.invoke(new SumTask(keeps, starters, 0, keeps.length * starters.length));
+		}
+
+		// the scores are the expected scores times the number of cases
+		long[] scores = new long[keeps.length];
+		for (int k = 0; k < keeps.length; k++) {
+			scores[k] = sums[k];
+		}
+		if (role != null) {
+			long[] cribSums;
+			if (pool == null) {
+				cribSums = new long[keeps.length];
+				for (int k = 0; k < keeps.length; k++) {
+					cribSums[k] = cribSum(hand & ~keeps[k], starters);
+				}
+			}
+			else {
+				cribSums = pool.invoke(new CribTask(keeps, hand, starters, 0, keeps.length));
+			}
+			// every start card is used with the same number of discards of the opponent
+			int numDiscard = (starters.length - 1) * (starters.length - 2) / 2;
+			for (int k = 0; k < keeps.length; k++) {
+				scores[k] = scores[k] * numDiscard + role.sign * cribSums[k];
+			}
+		}
+
+		return scores;
+	}
+
+
+	/** score some choices of the cards to keep under rules other than the
+	 *  standard ones.
+	 *
+	 * @param keeps masks of the cards kept for each choice.
+	 * @param hand a mask of all the cards in hand.
+	 * @param live a mask of the live cards.
+	 * @return the score of each choice, which is its expected score times the number of cases.
+	 */
+	private long[] scoreByRules(long[] keeps, long hand, long live) {
+		if (pool != null)
+			return pool.invoke(new RulesTask(rules, role, keeps, hand, live, 0, keeps.length));
+		long[] scores = new long[keeps.length];
+		for (int k = 0; k < keeps.length; k++) {
+			scores[k] = scoreByRules(rules, role, keeps[k], hand & ~keeps[k], live);
+		}
+		return scores;
+	}
+
+
+	/** score a choice of the cards to keep with every live start card and,
+	 *  if the role is set, every set of live cards completing the crib.
+	 *
+	 * @param rules the rules of the game.
+	 * @param role the role of the player, null to ignore the crib.
+	 * @param keep a mask of the cards kept in hand.
+	 * @param discards a mask of the cards the player puts in the crib.
+	 * @param live a mask of the live cards.
+	 * @return the expected score times the number of cases.
+	 */
+	private static long scoreByRules(RuleSet rules, Role role, long keep, long discards, long live) {
+		long handSum = 0;
+		long cribSum = 0;
+		Combinations cursor = new Combinations();
+		for (long starters = live; starters != 0; starters &= starters - 1) {
+			int startCard = Long.numberOfTrailingZeros(starters);
+			handSum += rules.handPoints(keep, startCard);
+			if (role == null)
+				continue;
+			for (cursor.reset(live & ~(1L << startCard), rules.numUnknownCrib()); cursor.next(); ) {
+				cribSum += rules.cribPoints(discards | cursor.mask(), startCard);
+			}
+		}
+		// every start card is used with the same number of cribs
+		return role == null ? handSum : handSum * numCrib(rules, role, live) + role.sign * cribSum;
+	}
+
+
+	/** @return the number of cribs with each start card, 1 if the crib is not counted */
+	private static long numCrib(RuleSet rules, Role role, long live) {
+		return role == null ? 1 : Combinations.binomial(Long.bitCount(live) - 1, rules.numUnknownCrib());
+	}
+
+
+	/** find the place of a choice in the reflected Gray code order, in which
+	 *  the first versions of this program listed the choices.
+	 *
+	 * @param positions a mask of the positions in hand of the cards kept.
+	 * @return the number whose Gray code is positions.
+	 */
+	static int order(int positions) {
+		int order = positions;
+		for (int shift = 1; shift < Integer.SIZE; shift <<= 1) {
+			order ^= order >>> shift;
+		}
+		return order;
+	}
+
+
+	/** @return a hand of the cards at some positions in hand, in the same order */
+	static Hand toHand(Hand hand, int positions) {
+		int[] cards = new int[Integer.bitCount(positions)];
+		int n = 0;
+		for (int i = 0; i < hand.getNumCard(); i++) {
+			if ((positions & 1 << i) != 0)
+				cards[n++] = hand.cardAt(i);
+		}
+		return new Hand(cards, n);
+	}
+
+
+	/** @return the sum of the points of a hand with every live start card */
+	private int handSum(long keep, long live, int[] starters) {
+		if (byRank)
+			return SCORER.get().sumPoints(keep, live);
+		return sum(keep, starters, 0, starters.length);
+	}
+
+
+	/** sum up the points of a hand with some of the start cards.
+	 *
+	 * @param keep a mask of the cards kept in hand.
+	 * @param starters the indices of all the possible start cards.
+	 * @param from the position of the first start card to use.
+	 * @param to the position after the last start card to use.
+	 * @return the sum of the total points.
+	 */
+	private static int sum(long keep, int[] starters, int from, int to) {
+		int sum = 0;
+		for (int s = from; s < to; s++) {
+			sum += Calcultor.totalPoints(keep, starters[s]);
+		}
+		return sum;
+	}
+
+
+	/** sum up the points of the crib with every start card and every pair
+	 *  of cards the opponent can discard.
+	 *
+	 * @param discards a mask of the two cards the player puts in the crib.
+	 * @param starters the indices of all the live cards.
+	 * @return the sum of the points of the crib.
+	 */
+	private static long cribSum(long discards, int[] starters) {
+		long sum = 0;
+		for (int s = 0; s < starters.length; s++) {
+			sum += cribSum(discards, starters, s);
+		}
+		return sum;
+	}
+
+
+	/** sum up the points of the crib with one start card and every pair of
+	 *  cards the opponent can discard.
+	 *
+	 * @param discards a mask of the two cards the player puts in the crib.
+	 * @param starters the indices of all the live cards.
+	 * @param s the position of the start card.
+	 * @return the sum of the points of the crib.
+	 */
+	static long cribSum(long discards, int[] starters, int s) {
+		long sum = 0;
+		int n = starters.length;
+		int startCard = starters[s];
+		for (int i = 0; i < n; i++) {
+			if (i == s) continue;
+			long crib = discards | 1L << starters[i];
+			for (int j = i + 1; j < n; j++) {
+				if (j == s) continue;
+				sum += Calcultor.cribPoints(crib | 1L << starters[j], startCard);
+			}
+		}
+		return sum;
+	}
+
+
+	/** @return the indices of the cards in a mask, in ascending order */
+	private static int[] cards(long mask) {
+		int[] cards = new int[Long.bitCount(mask)];
+		for (int i = 0; mask != 0; mask &= mask - 1) {
+			cards[i++] = Long.numberOfTrailingZeros(mask);
+		}
+		return cards;
+	}
+
+
+	/** A task computing the sums of points for a range of the pairs of a
+	 *  choice and a start card, numbered choice * starters.length + starter.
+	 *  It returns the sum for every choice, 0 for choices out of its range.
+	 */
+	private static class SumTask extends RecursiveTask<int[]> {
+
+		private final long[] keeps;
+		private final int[] starters;
+		private final int from;
+		private final int to;
+
+		SumTask(long[] keeps, int[] starters, int from, int to) {
+			this.keeps = keeps;
+			this.starters = starters;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected int[] compute() {
+			if (to - from > TASK_SIZE) {
+				int middle = (from + to) >>> 1;
+				SumTask left = new SumTask(keeps, starters, from, middle);
+				left.fork();
+				int[] sums = new SumTask(keeps, starters, middle, to).compute();
+				int[] leftSums = left.join();
+				for (int k = 0; k < sums.length; k++) {
+					sums[k] += leftSums[k];
+				}
+				return sums;
+			}
+
+			// sum up the pairs in range, one choice at a time
+			int[] sums = new int[keeps.length];
+			int n = starters.length;
+			for (int i = from; i < to; ) {
+				int k = i / n;
+				int end = Math.min(to, (k + 1) * n);
+				sums[k] += sum(keeps[k], starters, i - k * n, end - k * n);
+				i = end;
+			}
+			return sums;
+		}
+	}
+
+
+	/** A task computing the sums of points of the crib for a range of the
+	 *  choices. It returns the sum for every choice, 0 for choices out of
+	 *  its range.
+	 */
+	private static class CribTask extends RecursiveTask<long[]> {
+
+		private final long[] keeps;
+		private final long hand;
+		private final int[] starters;
+		private final int from;
+		private final int to;
+
+		CribTask(long[] keeps, long hand, int[] starters, int from, int to) {
+			this.keeps = keeps;
+			this.hand = hand;
+			this.starters = starters;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected long[] compute() {
+			if (to - from > 1) {
+				int middle = (from + to) >>> 1;
+				CribTask left = new CribTask(keeps, hand, starters, from, middle);
+				left.fork();
+				long[] sums = new CribTask(keeps, hand, starters, middle, to).compute();
+				long[] leftSums = left.join();
+				for (int k = 0; k < sums.length; k++) {
+					sums[k] += leftSums[k];
+				}
+				return sums;
+			}
+
+			long[] sums = new long[keeps.length];
+			if (from < to) {
+				sums[from] = cribSum(hand & ~keeps[from], starters);
+			}
+			return sums;
+		}
+	}
+
+
+	/** A task scoring a range of the choices under rules other than the
+	 *  standard ones. It returns the score of every choice, 0 for choices out
+	 *  of its range.
+	 */
+	private static class RulesTask extends RecursiveTask<long[]> {
+
+		private final RuleSet rules;
+		private final Role role;
+		private final long[] keeps;
+		private final long hand;
+		private final long live;
+		private final int from;
+		private final int to;
+
+		RulesTask(RuleSet rules, Role role, long[] keeps, long hand, long live, int from, int to) {
+			this.rules = rules;
+			this.role = role;
+			this.keeps = keeps;
+			this.hand = hand;
+			this.live = live;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected long[] compute() {
+			if (to - from > 1) {
+				int middle = (from + to) >>> 1;
+				RulesTask left = new RulesTask(rules, role, keeps, hand, live, from, middle);
+				left.fork();
+				long[] scores = new RulesTask(rules, role, keeps, hand, live, middle, to).compute();
+				long[] leftScores = left.join();
+				for (int k = 0; k < scores.length; k++) {
+					scores[k] += leftScores[k];
+				}
+				return scores;
+			}
+
+			long[] scores = new long[keeps.length];
+			if (from < to) {
+				scores[from] = scoreByRules(rules, role, keeps[from], hand & ~keeps[from], live);
+			}
+			return scores;
+		}
+	}
+}
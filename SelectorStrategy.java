@@ -0,0 +1,35 @@
+/** This class is used to let a player of GameSimulator keep the cards chosen
+ *  by Selector: the 4 cards with the greatest expected points in hand, and
+ *  with the expected points of the crib added for the dealer and taken away
+ *  for the pone if the crib is counted.
+ *
+ *  Counting the crib scores 45540 cribs for each choice, so it is about 500
+ *  times slower than the points in hand alone. See CribTableStrategy for a
+ *  faster estimate of the crib.
+ *
+ * @author Dongsheng Jiang
+ * @login_id DONGSHENGJ
+ */
+
+public class SelectorStrategy implements Strategy {
+
+	private final Selector selector = new Selector();
+	private final boolean crib;
+
+
+	/** Construct a SelectorStrategy.
+	 *
+	 * @param crib whether the points of the crib are counted.
+	 */
+	public SelectorStrategy(boolean crib) {
+		this.crib = crib;
+	}
+
+
+	@Override
+	public long discard(long deal, boolean dealer) {
+		if (crib)
+			selector.crib(dealer ? Selector.Role.DEALER : Selector.Role.PONE);
+		return selector.select(new Hand(deal)).mask();
+	}
+}
@@ -0,0 +1,210 @@
+/** This class is used to sum up the total points of a hand of 4 cards with
+ *  each of some start cards, the same as Calcultor.sumPoints().
+ *
+ *  The points are split the same way as in sumPoints(): 15s, Pairs and Runs
+ *  depend on the rank of the start card only, and Flushes and "One for his
+ *  nob" on its suit only. But instead of scoring the hand again for every
+ *  rank, the hand is looked at once and the points each rank of start card
+ *  adds are found with a few operations on small integers, the same for
+ *  every rank:
+ *
+ *  - 15s: the number of sets of cards in hand summing to 15 - value. These
+ *    numbers are kept 4 bits each in a long, the one for a sum of s at bit
+ *    4 * s, so adding a card of value v to the sets is adding the long
+ *    shifted by 4 * v to itself (no number is over 15, there being 16 sets).
+ *  - Pairs: 2 points for every card in hand of the same rank.
+ *  - Runs: with 5 cards there is at most one block of 3 or more ranks in a
+ *    row, found by shifting the mask of the ranks held. Its points are the
+ *    number of ranks in it times the product of their numbers of cards,
+ *    which is 1, 2, 4 or 3 for 0, 1, 2 or 3 pairs of cards in it.
+ *
+ *  These operations do not branch on the rank, so VectorStarterScorer can do
+ *  them for all 13 ranks at once in the lanes of the Vector API. That class
+ *  is in vector/ and built on its own (see there), and create() loads it by
+ *  name, giving a VectorStarterScorer when it was built and the
+ *  jdk.incubator.vector module is there (java --add-modules
+ *  jdk.incubator.vector), and this class otherwise, which does the same
+ *  operations one rank at a time.
+ *
+ *  A StarterScorer keeps its scratch space in fields, so every thread needs
+ *  its own one.
+ *
+ * @author Dongsheng Jiang
+ * @login_id DONGSHENGJ
+ */
+
+public class StarterScorer {
+
+	// number of cards in hand
+	public static final int NUM_CARD = Selector.NUM_KEEP;
+	// the sum counted by the rule of 15s
+	protected static final int FIFTEEN = 15;
+	private static final int POINTS_FOR_15S = 2;
+	private static final int POINTS_FOR_PAIRS = 2;
+	private static final int POINTS_FOR_NOB = 1;
+	private static final int POINTS_FOR_FLUSHES = 4;
+	private static final int RANK_FOR_NOB = Card.rankOf(Card.id('J', 'C'));
+	// the most pairs among the cards of a hand of 4 cards
+	protected static final int MAX_PAIR = 6;
+	// number of bits for the number of sets of cards summing to a value
+	protected static final int SET_BITS = 4;
+	protected static final int SET_MASK = (1 << SET_BITS) - 1;
+	// number of lanes used for the ranks, a multiple of the length of any vector
+	protected static final int NUM_LANE = 64;
+
+
+	// for every rank, 15 less its value, the number of lanes with ranks past the king being 0
+	protected static final int[] COMPLEMENT = new int[NUM_LANE];
+	// the ranks, every lane past the king being a rank no hand can hold
+	protected static final int[] RANK = new int[NUM_LANE];
+
+	static {
+		for (int rank = 0; rank < NUM_LANE; rank++) {
+			boolean real = rank < Card.NUM_RANK;
+			COMPLEMENT[rank] = real ? FIFTEEN - Card.valueOf(rank * Card.NUM_SUIT) : 0;
+			RANK[rank] = real ? rank : Integer.SIZE - 1;
+		}
+	}
+
+
+	// the number of start cards of every rank, the lanes past the king being 0
+	protected final int[] weights = new int[NUM_LANE];
+	private long starters = -1;
+	private int numStarter = 0;
+
+	// the hand: its ranks, the mask of them, the number of cards of every rank
+	protected final int[] ranks = new int[NUM_CARD];
+	protected int rankMask;
+	protected final int[] counts = new int[NUM_LANE];
+	// the rank of every pair of cards of the same rank in hand
+	protected final int[] pairRanks = new int[MAX_PAIR];
+	protected int numPair;
+	// the number of sets of cards in hand summing to every value up to 15, 4 bits each
+	protected long sets;
+
+
+	/** make a StarterScorer, with the Vector API if it can be used.
+	 *
+	 * @return a VectorStarterScorer, or a StarterScorer if the Vector API is not there.
+	 */
+	public static StarterScorer create() {
+		try {
+			return (StarterScorer) Class.forName("VectorStarterScorer").getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException | LinkageError e) {
+			return new StarterScorer();
+		}
+	}
+
+
+	/** @return whether the ranks are scored in the lanes of vectors */
+	public boolean vectorized() {
+		return false;
+	}
+
+
+	/** sum up the total points of a hand with each of some start cards in turn.
+	 *
+	 * @param hand a mask of the cards in hand.
+	 * @param starters a mask of the start cards, none of them in hand.
+	 * @return the sum of the total points, the same as Calcultor.sumPoints(hand, starters).
+	 */
+	public int sumPoints(long hand, long starters) {
+		// the rules are timed one by one in Calcultor when Metrics is on
+		if (Long.bitCount(hand) != NUM_CARD || Metrics.ENABLED)
+			return Calcultor.sumPoints(hand, starters);
+		if (starters != this.starters)
+			setStarters(starters);
+		setHand(hand);
+
+		// the 15s and pairs in hand are the same with every start card
+		int fixed = POINTS_FOR_15S * sets(FIFTEEN) + POINTS_FOR_PAIRS * numPair;
+		return numStarter * fixed + rankSum() + suitSum(hand, starters);
+	}
+
+
+	/** count the start cards of every rank. */
+	private void setStarters(long starters) {
+		this.starters = starters;
+		this.numStarter = Long.bitCount(starters);
+		for (int rank = 0; rank < Card.NUM_RANK; rank++) {
+			weights[rank] = Long.bitCount(starters >>> rank * Card.NUM_SUIT & 0xF);
+		}
+	}
+
+
+	/** look at the ranks and values of the cards in hand. */
+	private void setHand(long hand) {
+		for (int i = 0; i < NUM_CARD; i++) {
+			counts[ranks[i]] = 0;
+		}
+		rankMask = 0;
+		numPair = 0;
+		// only the empty set to begin with
+		sets = 1;
+
+		for (int i = 0; i < NUM_CARD; i++, hand &= hand - 1) {
+			int card = Long.numberOfTrailingZeros(hand);
+			int rank = Card.rankOf(card);
+			ranks[i] = rank;
+			// a pair with every card of the same rank before it
+			for (int j = counts[rank]; j > 0; j--) {
+				pairRanks[numPair++] = rank;
+			}
+			counts[rank]++;
+			rankMask |= 1 << rank;
+			sets += sets << SET_BITS * Card.valueOf(card);
+		}
+	}
+
+
+	/** @return the number of sets of cards in hand summing to a value up to 15 */
+	protected int sets(int sum) {
+		return (int) (sets >>> SET_BITS * sum) & SET_MASK;
+	}
+
+
+	/** @return the points the start cards add for 15s, Pairs and Runs, weighted by their numbers */
+	protected int rankSum() {
+		int sum = 0;
+		for (int rank = 0; rank < Card.NUM_RANK; rank++) {
+			if (weights[rank] == 0)
+				continue;
+			int points = POINTS_FOR_15S * sets(COMPLEMENT[rank]) + POINTS_FOR_PAIRS * counts[rank];
+
+			// the block of 3 or more ranks in a row, if there is one
+			int mask = rankMask | 1 << rank;
+			int starts = mask & mask >>> 1 & mask >>> 2;
+			int block = starts | starts << 1 | starts << 2;
+			if (starts != 0) {
+				int numCard = block >>> rank & 1;
+				for (int i = 0; i < NUM_CARD; i++) {
+					numCard += block >>> ranks[i] & 1;
+				}
+				int pairs = (block >>> rank & 1) * counts[rank];
+				for (int i = 0; i < numPair; i++) {
+					pairs += block >>> pairRanks[i] & 1;
+				}
+				int length = numCard - Math.min(pairs, 2);
+				int product = pairs == 3 ? 3 : 1 << pairs;
+				points += length * product;
+			}
+			sum += weights[rank] * points;
+		}
+		return sum;
+	}
+
+
+	/** @return the points the start cards add for Flushes and "One for his nob" */
+	private int suitSum(long hand, long starters) {
+		int sum = 0;
+		int suit = Card.suitOf(Long.numberOfTrailingZeros(hand));
+		if ((hand & ~Card.suitMask(suit)) == 0)
+			sum += POINTS_FOR_FLUSHES * numStarter + Long.bitCount(starters & Card.suitMask(suit));
+
+		// a jack in hand scores with every start card of its suit
+		for (long jacks = hand >>> RANK_FOR_NOB * Card.NUM_SUIT & 0xF; jacks != 0; jacks &= jacks - 1) {
+			sum += POINTS_FOR_NOB * Long.bitCount(starters & Card.suitMask(Long.numberOfTrailingZeros(jacks)));
+		}
+		return sum;
+	}
+}
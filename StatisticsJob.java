@@ -0,0 +1,396 @@
+/** This class is used to work out reference statistics over every hand and
+ *  every deal of the game: the points of every set of 5 cards with each of
+ *  them as the start card, and the best cards to keep from every deal of 6
+ *  cards with the sum of their points with each of the 46 start cards.
+ *
+ *  The sets of 5 cards and the deals are numbered by Combinations.index(),
+ *  and the numbers are cut into shards of SHARD_SIZE sets, the shards of the
+ *  hands coming first. The shards are scored by a pool of threads and their
+ *  results written to a file through a memory mapping, each shard to its own
+ *  part of every column:
+ *
+ *      header   HEADER_SIZE bytes: a magic number, the version of the format,
+ *               the size of a shard, the number of shards and the numbers of
+ *               hands and deals
+ *      points   5 bytes for each set of 5 cards, its points in hand with each
+ *               of its cards as the start card, in ascending order of cards
+ *      keeps    1 byte for each deal, the positions of the best 4 cards among
+ *               the cards of the deal in ascending order, chosen among equal
+ *               sums in the same order as Selector
+ *      sums     2 bytes for each deal, the sum of the points of the best
+ *               choice with each start card, so its expected score is sum / 46
+ *
+ *  Once a shard is written and forced to the disk, a record of it and of its
+ *  totals is added to a checkpoint file next to the results, the name of the
+ *  file with ".done" at the end. A run that was stopped is then started again
+ *  with the same command: the shards in the checkpoint are not scored again,
+ *  and their totals count in the report. The magic number is only written
+ *  when every shard is done, as in KeepTable.
+ *
+ *  The hands in a deal are scored with a StarterScorer, so every deal costs
+ *  15 sums of points rather than 690 scorings.
+ *
+ *  usage: java StatisticsJob [--threads n] file
+ *
+ * @author Dongsheng Jiang
+ * @login_id DONGSHENGJ
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class StatisticsJob {
+
+	// number of cards in a hand with the start card, and in a deal
+	private static final int HAND_CARD = Selector.NUM_KEEP + 1;
+	private static final int DEAL_CARD = Selector.NUM_CRIB_DEAL;
+	public static final long NUM_HAND = Combinations.binomial(Card.NUM_CARD, HAND_CARD);
+	public static final long NUM_DEAL = Combinations.binomial(Card.NUM_CARD, DEAL_CARD);
+	// number of start cards for a deal
+	private static final int NUM_STARTER = Card.NUM_CARD - DEAL_CARD;
+	// number of sets of cards scored by one shard
+	public static final int SHARD_SIZE = 1 << 16;
+	private static final int NUM_HAND_SHARD = (int) ((NUM_HAND + SHARD_SIZE - 1) / SHARD_SIZE);
+	private static final int NUM_DEAL_SHARD = (int) ((NUM_DEAL + SHARD_SIZE - 1) / SHARD_SIZE);
+	public static final int NUM_SHARD = NUM_HAND_SHARD + NUM_DEAL_SHARD;
+
+	// "CRST", the first bytes of a file of statistics
+	private static final int MAGIC = 0x43525354;
+	// the version of the format, to be changed when the format changes
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 32;
+	// where the columns start
+	private static final long POINTS_OFFSET = HEADER_SIZE;
+	private static final long KEEPS_OFFSET = POINTS_OFFSET + NUM_HAND * HAND_CARD;
+	private static final long SUMS_OFFSET = KEEPS_OFFSET + NUM_DEAL;
+	private static final long FILE_SIZE = SUMS_OFFSET + NUM_DEAL * Short.BYTES;
+
+	// the totals of a shard: the number of hands with every points, then the
+	// sum of the best sums of the deals
+	private static final int BEST_SUM = ScoreDistribution.MAX_SCORE + 1;
+	private static final int NUM_TOTAL = BEST_SUM + 1;
+	// a record of the checkpoint: the number of the shard and its totals
+	private static final int RECORD_SIZE = Integer.BYTES + NUM_TOTAL * Long.BYTES;
+	private static final String CHECKPOINT_SUFFIX = ".done";
+
+	// a mask of the positions, among the cards of a deal in ascending order,
+	// of the cards kept by each choice, in the order of Selector
+	private static final int[] CHOICE_POSITIONS = new int[(int) Combinations.binomial(DEAL_CARD, Selector.NUM_KEEP)];
+
+	static {
+		Combinations cursor = new Combinations();
+		int k = 0;
+		for (cursor.reset((1L << DEAL_CARD) - 1, Selector.NUM_KEEP); cursor.next(); k++) {
+			CHOICE_POSITIONS[k] = (int) cursor.mask();
+		}
+	}
+
+
+	// the columns, mapped one region each since a mapping holds at most 2 GB
+	private final MappedByteBuffer points;
+	private final MappedByteBuffer keeps;
+	private final MappedByteBuffer sums;
+	private final FileChannel checkpoint;
+	// the shards done, and the totals of all of them
+	private final boolean[] done = new boolean[NUM_SHARD];
+	private final long[] totals = new long[NUM_TOTAL];
+	private int numDone = 0;
+	// the numbers of sets of 5 cards and of deals scored by this run
+	private long handsScored = 0;
+	private long dealsScored = 0;
+
+
+	private StatisticsJob(FileChannel channel, FileChannel checkpoint) throws IOException {
+		this.points = channel.map(FileChannel.MapMode.READ_WRITE, POINTS_OFFSET, KEEPS_OFFSET - POINTS_OFFSET);
+		this.keeps = channel.map(FileChannel.MapMode.READ_WRITE, KEEPS_OFFSET, SUMS_OFFSET - KEEPS_OFFSET);
+		this.sums = channel.map(FileChannel.MapMode.READ_WRITE, SUMS_OFFSET, FILE_SIZE - SUMS_OFFSET);
+		this.checkpoint = checkpoint;
+	}
+
+
+	/** score all the shards not done yet, writing the results to a file and
+	 *  printing a report when it is done.
+	 *
+	 * @param file the name of the file, which is carried on with if a run was stopped.
+	 * @param threads the number of threads scoring the shards.
+	 * @throws IOException if the file or the checkpoint cannot be read or written.
+	 */
+	public static void run(String file, int threads) throws IOException {
+		if (threads < 1)
+			throw new IllegalArgumentException("The number of threads should be at least 1\n");
+
+		File checkpointFile = new File(file + CHECKPOINT_SUFFIX);
+		try (RandomAccessFile output = new RandomAccessFile(file, "rw");
+				RandomAccessFile records = new RandomAccessFile(checkpointFile, "rw")) {
+			FileChannel channel = output.getChannel();
+			boolean resume = channel.size() != 0;
+			if (resume && !sameFormat(channel))
+				throw new IllegalArgumentException(file + " is not a file of statistics of this version.\n");
+			if (!resume) {
+				records.setLength(0);
+				output.setLength(FILE_SIZE);
+				channel.write(header(), 0);
+			}
+
+			StatisticsJob job = new StatisticsJob(channel, records.getChannel());
+			int numResumed = job.readCheckpoint();
+
+			long start = System.nanoTime();
+			ForkJoinPool pool = new ForkJoinPool(threads);
+			try {
+				pool.invoke(new ShardTask(job, 0, NUM_SHARD));
+			} finally {
+				pool.shutdown();
+			}
+			double seconds = (System.nanoTime() - start) / 1e9;
+
+			// the magic number comes last, so a file that was not finished is not used
+			ByteBuffer magic = ByteBuffer.allocate(Integer.BYTES).putInt(0, MAGIC);
+			channel.write(magic, 0);
+			channel.force(true);
+			job.report(numResumed, seconds);
+		}
+	}
+
+
+	/** @return the header of a new file, without the magic number */
+	private static ByteBuffer header() {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.putInt(4, VERSION);
+		header.putInt(8, SHARD_SIZE);
+		header.putInt(12, NUM_SHARD);
+		header.putLong(16, NUM_HAND);
+		header.putLong(24, NUM_DEAL);
+		return header;
+	}
+
+
+	/** @return whether a file was made with the same version and shards */
+	private static boolean sameFormat(FileChannel channel) throws IOException {
+		if (channel.size() != FILE_SIZE)
+			return false;
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		channel.read(header, 0);
+		ByteBuffer expected = header();
+		return header.getInt(4) == expected.getInt(4) && header.getInt(8) == expected.getInt(8)
+				&& header.getInt(12) == expected.getInt(12) && header.getLong(16) == expected.getLong(16)
+				&& header.getLong(24) == expected.getLong(24);
+	}
+
+
+	/** read the shards done by the runs before, leaving out a record cut short.
+	 *
+	 * @return the number of shards done.
+	 */
+	private int readCheckpoint() throws IOException {
+		long numRecord = checkpoint.size() / RECORD_SIZE;
+		checkpoint.truncate(numRecord * RECORD_SIZE);
+		ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+		for (long r = 0; r < numRecord; r++) {
+			record.clear();
+			checkpoint.read(record, r * RECORD_SIZE);
+			int shard = record.getInt(0);
+			if (shard < 0 || shard >= NUM_SHARD || done[shard])
+				throw new IllegalArgumentException("The checkpoint of the statistics is corrupted, please delete it.\n");
+			long[] shardTotals = new long[NUM_TOTAL];
+			for (int i = 0; i < NUM_TOTAL; i++) {
+				shardTotals[i] = record.getLong(Integer.BYTES + i * Long.BYTES);
+			}
+			add(shard, shardTotals);
+		}
+		checkpoint.position(checkpoint.size());
+		return numDone;
+	}
+
+
+	/** @return whether a shard is done */
+	private synchronized boolean isDone(int shard) {
+		return done[shard];
+	}
+
+
+	/** count a shard as done and add its totals. */
+	private synchronized void add(int shard, long[] shardTotals) {
+		done[shard] = true;
+		numDone++;
+		for (int i = 0; i < NUM_TOTAL; i++) {
+			totals[i] += shardTotals[i];
+		}
+	}
+
+
+	/** score a shard, force its results to the disk and then add it to the checkpoint. */
+	private void score(int shard) throws IOException {
+		long[] shardTotals = new long[NUM_TOTAL];
+		long numSet = shard < NUM_HAND_SHARD ? scoreHands(shard, shardTotals)
+				: scoreDeals(shard - NUM_HAND_SHARD, shardTotals);
+
+		ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+		record.putInt(shard);
+		for (long total : shardTotals) {
+			record.putLong(total);
+		}
+		record.flip();
+		synchronized (this) {
+			while (record.hasRemaining()) {
+				checkpoint.write(record);
+			}
+			checkpoint.force(false);
+			add(shard, shardTotals);
+			if (shard < NUM_HAND_SHARD)
+				handsScored += numSet;
+			else
+				dealsScored += numSet;
+		}
+	}
+
+
+	/** write the points of the sets of 5 cards of a shard with each of their cards as the start card.
+	 *
+	 * @return the number of sets of 5 cards scored.
+	 */
+	private long scoreHands(int shard, long[] shardTotals) {
+		long from = (long) shard * SHARD_SIZE;
+		long to = Math.min(NUM_HAND, from + SHARD_SIZE);
+		long hand = Combinations.set(from, HAND_CARD);
+		for (long index = from; index < to; index++, hand = Combinations.nextSet(hand)) {
+			int offset = (int) (index * HAND_CARD);
+			int i = 0;
+			for (long cards = hand; cards != 0; cards &= cards - 1, i++) {
+				int startCard = Long.numberOfTrailingZeros(cards);
+				int total = Calcultor.totalPoints(hand & ~(1L << startCard), startCard);
+				points.put(offset + i, (byte) total);
+				shardTotals[total]++;
+			}
+		}
+		points.force((int) (from * HAND_CARD), (int) ((to - from) * HAND_CARD));
+		return to - from;
+	}
+
+
+	/** write the best choice of the deals of a shard and the sum of its points.
+	 *
+	 * @return the number of deals scored.
+	 */
+	private long scoreDeals(int shard, long[] shardTotals) {
+		StarterScorer scorer = StarterScorer.create();
+		long from = (long) shard * SHARD_SIZE;
+		long to = Math.min(NUM_DEAL, from + SHARD_SIZE);
+		long deal = Combinations.set(from, DEAL_CARD);
+		for (long index = from; index < to; index++, deal = Combinations.nextSet(deal)) {
+			long starters = Card.FULL_DECK & ~deal;
+			int best = 0;
+			int max = -1;
+			for (int positions : CHOICE_POSITIONS) {
+				int sum = scorer.sumPoints(keep(deal, positions), starters);
+				if (sum > max || (sum == max && Selector.order(positions) < Selector.order(best))) {
+					max = sum;
+					best = positions;
+				}
+			}
+			keeps.put((int) index, (byte) best);
+			sums.putShort((int) index * Short.BYTES, (short) max);
+			shardTotals[BEST_SUM] += max;
+		}
+		keeps.force((int) from, (int) (to - from));
+		sums.force((int) from * Short.BYTES, (int) (to - from) * Short.BYTES);
+		return to - from;
+	}
+
+
+	/** @return a mask of the cards of a deal at some positions, the cards taken in ascending order */
+	private static long keep(long deal, int positions) {
+		long keep = 0;
+		for (; deal != 0; deal &= deal - 1, positions >>>= 1) {
+			if ((positions & 1) != 0)
+				keep |= deal & -deal;
+		}
+		return keep;
+	}
+
+
+	/** print the rates of this run and the totals of all the shards. */
+	private void report(int numResumed, double seconds) {
+		long numHand = 0;
+		long sumPoints = 0;
+		for (int p = 0; p < BEST_SUM; p++) {
+			numHand += totals[p];
+			sumPoints += p * totals[p];
+		}
+
+		System.out.printf("%d shards scored in %.1f s, %d done before%n", numDone - numResumed, seconds, numResumed);
+		System.out.printf("%.0f hands/s, %.0f deals/s%n", handsScored * HAND_CARD / seconds, dealsScored / seconds);
+		System.out.printf("%d hands with a start card, %.4f points on average%n", numHand, (double) sumPoints / numHand);
+		for (int p = 0; p < BEST_SUM; p++) {
+			if (totals[p] != 0)
+				System.out.printf("%2d points: %d%n", p, totals[p]);
+		}
+		System.out.printf("%d deals, %.4f expected points of the best choice on average%n",
+				NUM_DEAL, (double) totals[BEST_SUM] / NUM_DEAL / NUM_STARTER);
+	}
+
+
+	/** A task scoring the shards in a range that are not done yet. */
+	private static class ShardTask extends RecursiveAction {
+
+		private final StatisticsJob job;
+		private final int from;
+		private final int to;
+
+		ShardTask(StatisticsJob job, int from, int to) {
+			this.job = job;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > 1) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new ShardTask(job, from, middle), new ShardTask(job, middle, to));
+				return;
+			}
+			if (job.isDone(from))
+				return;
+			try {
+				job.score(from);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+
+	public static void main(String[] args) {
+		try {
+			int threads = 1;
+			int i = 0;
+			if (args.length == 3 && args[0].equals("--threads")) {
+				try {
+					threads = Integer.parseInt(args[1]);
+				} catch (NumberFormatException e) {
+					throw new IllegalArgumentException(args[1] + " is not a number.\n");
+				}
+				i = 2;
+			}
+			if (args.length != i + 1)
+				throw new IllegalArgumentException("Usage: java StatisticsJob [--threads n] file\n");
+
+			run(args[i], threads);
+
+		} catch (IllegalArgumentException e) {
+			System.out.print(e.getMessage());
+			System.exit(1);
+		} catch (IOException | UncheckedIOException e) {
+			System.out.println(e.getMessage());
+			System.exit(1);
+		}
+	}
+}
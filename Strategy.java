@@ -0,0 +1,32 @@
+/** This interface is used by GameSimulator to let a player decide which
+ *  cards to keep and which card to lay in the play.
+ *
+ *  A GameSimulator makes one Strategy for every thread, so a Strategy can
+ *  keep its own scratch space without being safe for many threads.
+ *
+ * @author Dongsheng Jiang
+ * @login_id DONGSHENGJ
+ */
+
+public interface Strategy {
+
+	/** choose the 4 cards to keep from the 6 cards dealt, the other 2 going to the crib.
+	 *
+	 * @param deal a mask of the 6 cards dealt.
+	 * @param dealer whether the crib is the player's own.
+	 * @return a mask of the 4 cards to keep.
+	 */
+	long discard(long deal, boolean dealer);
+
+
+	/** choose the card to lay in the play. By default the card scoring the
+	 *  most points at once is laid, as in PeggingSimulator.
+	 *
+	 * @param hand a mask of the cards left in hand.
+	 * @param pegging the current sequence.
+	 * @return the index of the card, -1 if no card can be laid.
+	 */
+	default int play(long hand, Pegging pegging) {
+		return PeggingSimulator.choose(hand, pegging);
+	}
+}
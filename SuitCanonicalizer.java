@@ -0,0 +1,103 @@
+/** This class is used to find a canonical form of a hand of cards, so that
+ *  hands which only differ by renaming the suits have the same form.
+ *
+ *  No rule of the game favours a suit, so the expected score of a hand does
+ *  not change when, say, hearts and clubs are swapped in it and in the cards
+ *  known to be out of the deck (the dead cards). The suits are renamed so
+ *  that the suit with the most significant ranks in hand comes first, ties
+ *  being broken by the ranks among the dead cards. Two suits still tied hold
+ *  the same ranks in both sets, so either order gives the same form.
+ *
+ *  A renaming of the suits is packed into an int, two bits per suit giving
+ *  the new suit of suit s at bits 2s and 2s + 1, so nothing is created.
+ *
+ * @author Dongsheng Jiang
+ * @login_id DONGSHENGJ
+ */
+
+public class SuitCanonicalizer {
+
+	// number of bits giving the new suit of a suit in a renaming
+	private static final int BITS_PER_SUIT = 2;
+	// the renaming keeping every suit
+	public static final int IDENTITY = 0b11100100;
+
+
+	/** find the renaming of the suits giving the canonical form.
+	 *
+	 * @param hand a mask of the cards in hand.
+	 * @param dead a mask of the other cards known to be out of the deck.
+	 * @return the renaming, to be used with apply().
+	 */
+	public static int permutation(long hand, long dead) {
+		// the signature of a suit, the ranks in hand above the ranks of dead cards
+		long s0 = signature(hand, dead, 0);
+		long s1 = signature(hand, dead, 1);
+		long s2 = signature(hand, dead, 2);
+		long s3 = signature(hand, dead, 3);
+
+		// the new suit of a suit is the number of suits with a greater signature,
+		// or an equal one and a smaller suit
+		int n0 = (s1 > s0 ? 1 : 0) + (s2 > s0 ? 1 : 0) + (s3 > s0 ? 1 : 0);
+		int n1 = (s0 >= s1 ? 1 : 0) + (s2 > s1 ? 1 : 0) + (s3 > s1 ? 1 : 0);
+		int n2 = (s0 >= s2 ? 1 : 0) + (s1 >= s2 ? 1 : 0) + (s3 > s2 ? 1 : 0);
+		int n3 = (s0 >= s3 ? 1 : 0) + (s1 >= s3 ? 1 : 0) + (s2 >= s3 ? 1 : 0);
+		return n0 | n1 << BITS_PER_SUIT | n2 << 2 * BITS_PER_SUIT | n3 << 3 * BITS_PER_SUIT;
+	}
+
+
+	/** rename the suits of a set of cards.
+	 *
+	 * @param cards a mask of cards.
+	 * @param permutation a renaming from permutation().
+	 * @return the mask of the renamed cards.
+	 */
+	public static long apply(long cards, int permutation) {
+		long renamed = 0;
+		for (int suit = 0; suit < Card.NUM_SUIT; suit++) {
+			// the cards of a suit only move inside the four bits of their rank
+			int shift = newSuit(permutation, suit) - suit;
+			long inSuit = cards & Card.suitMask(suit);
+			renamed |= shift >= 0 ? inSuit << shift : inSuit >>> -shift;
+		}
+		return renamed;
+	}
+
+
+	/** @return the renaming undoing a renaming */
+	public static int inverse(int permutation) {
+		int inverse = 0;
+		for (int suit = 0; suit < Card.NUM_SUIT; suit++) {
+			inverse |= suit << BITS_PER_SUIT * newSuit(permutation, suit);
+		}
+		return inverse;
+	}
+
+
+	/** @return the new suit of a suit in a renaming */
+	public static int newSuit(int permutation, int suit) {
+		return permutation >>> BITS_PER_SUIT * suit & (1 << BITS_PER_SUIT) - 1;
+	}
+
+
+	/** @return the canonical form of a hand, with dead cards renamed the same way */
+	public static long canonical(long hand, long dead) {
+		return apply(hand, permutation(hand, dead));
+	}
+
+
+	/** @return the ranks of a suit in hand in the high bits and among dead cards in the low bits */
+	private static long signature(long hand, long dead, int suit) {
+		return (long) ranks(hand, suit) << Card.NUM_RANK | ranks(dead, suit);
+	}
+
+
+	/** @return a mask with bit r set if the card of rank r and of a suit is in cards */
+	private static int ranks(long cards, int suit) {
+		int ranks = 0;
+		for (long inSuit = (cards & Card.suitMask(suit)) >>> suit; inSuit != 0; inSuit &= inSuit - 1) {
+			ranks |= 1 << Long.numberOfTrailingZeros(inSuit) / Card.NUM_SUIT;
+		}
+		return ranks;
+	}
+}
@@ -0,0 +1,400 @@
+/** This class is used to score again the deals of played games kept as text,
+ *  after a change of the rules or of the strategies, and to add up the
+ *  points of every player and of every scoring rule.
+ *
+ *  Every line of a transcript is one deal: the player who dealt, 1 or 2,
+ *  then the 4 cards kept by player 1, the 4 cards kept by player 2, the 4
+ *  cards of the crib and the start card, separated by spaces, tabs, commas
+ *  or bars, such as
+ *
+ *      1 | 5H 5S 4C 6C | JD KS 2C 3D | 7H 8H 9S TS | QC
+ *
+ *  Empty lines and lines starting with # are left out, and a line that is
+ *  not a valid deal is counted as invalid without stopping the rest.
+ *
+ *  The file is read through memory mappings, cut into chunks of CHUNK_SIZE
+ *  bytes scored by a pool of threads. A chunk scores the lines starting in
+ *  it, so the lines are split at their breaks without a first pass over the
+ *  file. The cards are parsed straight from the bytes into their indices as
+ *  in BatchSelector, so no String and no Card is created for a deal, and the
+ *  hands are scored by Calcultor, or by a RuleSet for other rules.
+ *
+ *  usage: java TranscriptScorer [--threads n] [--crib-flush] file
+ *
+ * @author Dongsheng Jiang
+ * @login_id DONGSHENGJ
+ */
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+public class TranscriptScorer {
+
+	public static final int NUM_PLAYER = 2;
+	// number of bytes scored by one task, the lines starting in them
+	public static final int CHUNK_SIZE = 1 << 24;
+	// the longest line read past the end of a chunk, a longer one being invalid
+	private static final int MAX_LINE = 1 << 10;
+	// number of cards in a hand, and in a deal: two hands, the crib and the start card
+	private static final int NUM_KEPT = Selector.NUM_KEEP;
+	private static final int NUM_CARD = (NUM_PLAYER + 1) * NUM_KEPT + 1;
+	private static final int CRIB = NUM_PLAYER * NUM_KEPT;
+	private static final int STARTER = NUM_CARD - 1;
+	private static final int ID_FOR_NOB = Card.id('J', 'C');
+
+	// the totals: the deals and the invalid lines, then for every player the
+	// deals dealt, the points in hand and in the crib, then the points of every rule
+	private static final int DEALS = 0;
+	private static final int INVALID = 1;
+	private static final int DEALT = 2;
+	private static final int HAND_POINTS = DEALT + NUM_PLAYER;
+	private static final int CRIB_POINTS = HAND_POINTS + NUM_PLAYER;
+	private static final int FIFTEENS = CRIB_POINTS + NUM_PLAYER;
+	private static final int PAIRS = FIFTEENS + 1;
+	private static final int RUNS = PAIRS + 1;
+	private static final int FLUSHES = RUNS + 1;
+	private static final int NOB = FLUSHES + 1;
+	private static final int NUM_TOTAL = NOB + 1;
+
+
+	// the rules the deals are scored by
+	private RuleSet rules = RuleSet.STANDARD;
+	// the threads scoring the chunks, null to score in the calling thread
+	private ForkJoinPool pool = null;
+	// the totals and the size of the last file scored
+	private long[] totals = new long[NUM_TOTAL];
+	private long numByte = 0;
+
+
+	/** Construct a TranscriptScorer scoring in the calling thread by the standard rules. */
+	public TranscriptScorer() {}
+
+
+	/** set the number of threads scoring the chunks.
+	 *
+	 * @param threads the number of threads, 1 to score in the calling thread.
+	 * @return this object.
+	 */
+	public TranscriptScorer threads(int threads) {
+		if (threads < 1)
+			throw new IllegalArgumentException("The number of threads should be at least 1\n");
+		if (pool != null)
+			pool.shutdown();
+		pool = threads == 1 ? null : new ForkJoinPool(threads);
+		return this;
+	}
+
+
+	/** set the rules the deals are scored by.
+	 *
+	 * @param rules a rule set dealing 2 players 4 cards each with a crib of 4.
+	 * @return this object.
+	 */
+	public TranscriptScorer rules(RuleSet rules) {
+		if (rules.numKept() != NUM_KEPT || rules.cribSize() != NUM_KEPT)
+			throw new IllegalArgumentException("The transcripts have hands and cribs of " + NUM_KEPT + " cards\n");
+		this.rules = rules;
+		return this;
+	}
+
+
+	/** score all the deals of a transcript and add up their points.
+	 *
+	 * @param file the name of the file.
+	 * @return this object.
+	 * @throws IOException if the file cannot be read.
+	 */
+	public TranscriptScorer score(String file) throws IOException {
+		try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+			FileChannel channel = input.getChannel();
+			long size = channel.size();
+			numByte = size;
+			int numChunk = (int) ((size + CHUNK_SIZE - 1) / CHUNK_SIZE);
+			ChunkTask task = new ChunkTask(channel, size, rules, 0, numChunk);
+			totals = pool == null ? task.compute() : pool.invoke(task);
+		}
+		return this;
+	}
+
+
+	/** @return the number of bytes of the last file scored */
+	public long numByte() {
+		return numByte;
+	}
+
+
+	/** @return the number of valid deals scored */
+	public long numDeal() {
+		return totals[DEALS];
+	}
+
+
+	/** @return the number of lines that were not valid deals */
+	public long numInvalid() {
+		return totals[INVALID];
+	}
+
+
+	/** @return the number of deals dealt by a player, 0 or 1 */
+	public long dealt(int player) {
+		return totals[DEALT + player];
+	}
+
+
+	/** @return the points of a player in hand */
+	public long handPoints(int player) {
+		return totals[HAND_POINTS + player];
+	}
+
+
+	/** @return the points of a player in the crib */
+	public long cribPoints(int player) {
+		return totals[CRIB_POINTS + player];
+	}
+
+
+	@Override
+	public String toString() {
+		StringBuilder report = new StringBuilder();
+		report.append(String.format("%d deals, %d invalid lines, rules: %s%n", numDeal(), numInvalid(), rules));
+		for (int p = 0; p < NUM_PLAYER; p++) {
+			long points = handPoints(p) + cribPoints(p);
+			report.append(String.format("player %d: %d deals dealt, %d in hand, %d in the crib, %d in all, %.4f per deal%n",
+					p + 1, dealt(p), handPoints(p), cribPoints(p), points, (double) points / Math.max(1, numDeal())));
+		}
+		report.append(String.format("15s %d, pairs %d, runs %d, flushes %d, nob %d",
+				totals[FIFTEENS], totals[PAIRS], totals[RUNS], totals[FLUSHES], totals[NOB]));
+		return report.toString();
+	}
+
+
+	/** A task scoring the lines starting in a range of chunks. It returns the
+	 *  totals of those lines.
+	 */
+	private static class ChunkTask extends RecursiveTask<long[]> {
+
+		private final FileChannel channel;
+		private final long size;
+		private final RuleSet rules;
+		private final int from;
+		private final int to;
+
+		// the scoring of the current chunk
+		private long[] totals;
+		// the cards read so far from the current line, and the player who dealt
+		private final int[] cards = new int[NUM_CARD];
+		private int numCard;
+		private int dealer;
+		private boolean invalid;
+		// the current token
+		private int tokenLength;
+		private char rank;
+		private char suit;
+
+		ChunkTask(FileChannel channel, long size, RuleSet rules, int from, int to) {
+			this.channel = channel;
+			this.size = size;
+			this.rules = rules;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected long[] compute() {
+			if (to - from > 1) {
+				int middle = (from + to) >>> 1;
+				ChunkTask left = new ChunkTask(channel, size, rules, from, middle);
+				left.fork();
+				long[] totals = new ChunkTask(channel, size, rules, middle, to).compute();
+				long[] leftTotals = left.join();
+				for (int i = 0; i < NUM_TOTAL; i++) {
+					totals[i] += leftTotals[i];
+				}
+				return totals;
+			}
+
+			totals = new long[NUM_TOTAL];
+			if (from < to) {
+				try {
+					scoreChunk((long) from * CHUNK_SIZE);
+				} catch (IOException e) {
+					throw new IllegalArgumentException(e.getMessage() + "\n");
+				}
+			}
+			return totals;
+		}
+
+		/** score the lines starting in the chunk at some position of the file. */
+		private void scoreChunk(long start) throws IOException {
+			// from the byte before the chunk, to tell whether a line starts with it,
+			// to the end of a line starting at its end
+			long mapStart = Math.max(0, start - 1);
+			long end = Math.min(size, start + CHUNK_SIZE);
+			long mapEnd = Math.min(size, end + MAX_LINE);
+			MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, mapStart, mapEnd - mapStart);
+			int limit = (int) (mapEnd - mapStart);
+			int last = (int) (end - mapStart);
+
+			// a line begun in the chunk before belongs to it
+			int i = (int) (start - mapStart);
+			if (start > 0 && bytes.get(0) != '\n') {
+				while (i < limit && bytes.get(i) != '\n') i++;
+				i++;
+			}
+
+			while (i < last) {
+				startLine();
+				boolean comment = bytes.get(i) == '#';
+				for (; i < limit; i++) {
+					byte b = bytes.get(i);
+					if (b == '\n') break;
+					if (!comment) readByte(b);
+				}
+				// a line cut off before its break is only whole at the end of the file
+				if (!comment)
+					endLine(i == limit && mapEnd != size);
+				i++;
+			}
+		}
+
+		/** get ready for a new line */
+		private void startLine() {
+			numCard = -1;
+			dealer = -1;
+			invalid = false;
+			tokenLength = 0;
+		}
+
+		/** add one byte of the current line to the current token */
+		private void readByte(byte b) {
+			if (b == ' ' || b == '\t' || b == ',' || b == '|' || b == '\r') {
+				endToken();
+				return;
+			}
+			if (tokenLength == 0) rank = (char) (b & 0xFF);
+			else if (tokenLength == 1) suit = (char) (b & 0xFF);
+			tokenLength++;
+		}
+
+		/** finish the current token: the dealer first, then the cards */
+		private void endToken() {
+			if (tokenLength == 0)
+				return;
+			if (numCard < 0) {
+				dealer = tokenLength == 1 ? rank - '1' : -1;
+				if (dealer < 0 || dealer >= NUM_PLAYER)
+					invalid = true;
+			}
+			else if (numCard < NUM_CARD) {
+				int id = tokenLength == 2 ? Card.id(rank, suit) : -1;
+				if (id < 0)
+					invalid = true;
+				cards[numCard] = id;
+			}
+			numCard++;
+			tokenLength = 0;
+		}
+
+		/** score the current line, if it is a valid deal.
+		 *
+		 * @param cut whether the line was too long to be read to its end.
+		 */
+		private void endLine(boolean cut) {
+			endToken();
+			// an empty line
+			if (numCard < 0)
+				return;
+
+			long deal = 0;
+			for (int c = 0; c < numCard && c < NUM_CARD && !invalid; c++) {
+				deal |= 1L << cards[c];
+			}
+			if (cut || invalid || numCard != NUM_CARD || Long.bitCount(deal) != NUM_CARD) {
+				totals[INVALID]++;
+				return;
+			}
+
+			int startCard = cards[STARTER];
+			for (int p = 0; p < NUM_PLAYER; p++) {
+				long hand = cards(p * NUM_KEPT);
+				int points = rules == RuleSet.STANDARD ? Calcultor.totalPoints(hand, startCard)
+						: rules.handPoints(hand, startCard);
+				totals[HAND_POINTS + p] += points;
+				addRules(hand, startCard, points);
+			}
+			long crib = cards(CRIB);
+			int points = rules == RuleSet.STANDARD ? Calcultor.cribPoints(crib, startCard)
+					: rules.cribPoints(crib, startCard);
+			totals[CRIB_POINTS + dealer] += points;
+			addRules(crib, startCard, points);
+			totals[DEALT + dealer]++;
+			totals[DEALS]++;
+		}
+
+		/** @return a mask of the 4 cards of the current line from a position */
+		private long cards(int from) {
+			long mask = 0;
+			for (int c = from; c < from + NUM_KEPT; c++) {
+				mask |= 1L << cards[c];
+			}
+			return mask;
+		}
+
+		/** split the points of a hand or a crib between the rules. */
+		private void addRules(long hand, int startCard, int points) {
+			int index = ScoreTable.index(hand | 1L << startCard);
+			int fifteens = ScoreTable.pointsFor15S(index);
+			int pairs = ScoreTable.pointsForPairs(index);
+			int runs = ScoreTable.pointsForRuns(index);
+			int nob = (hand & 1L << ID_FOR_NOB + Card.suitOf(startCard)) != 0 ? 1 : 0;
+			totals[FIFTEENS] += fifteens;
+			totals[PAIRS] += pairs;
+			totals[RUNS] += runs;
+			totals[NOB] += nob;
+			totals[FLUSHES] += points - fifteens - pairs - runs - nob;
+		}
+	}
+
+
+	public static void main(String[] args) {
+		try {
+			TranscriptScorer scorer = new TranscriptScorer().threads(Runtime.getRuntime().availableProcessors());
+			int i = 0;
+			for (; i < args.length - 1; i++) {
+				if (args[i].equals("--threads") && i + 2 < args.length) {
+					try {
+						scorer.threads(Integer.parseInt(args[++i]));
+					} catch (NumberFormatException e) {
+						throw new IllegalArgumentException(args[i] + " is not a number.\n");
+					}
+				}
+				else if (args[i].equals("--crib-flush")) {
+					scorer.rules(RuleSet.STANDARD.cribFlush(true));
+				}
+				else {
+					throw new IllegalArgumentException(args[i] + " is an invalid option.\n");
+				}
+			}
+			if (i != args.length - 1)
+				throw new IllegalArgumentException("Usage: java TranscriptScorer [--threads n] [--crib-flush] file\n");
+
+			long start = System.nanoTime();
+			scorer.score(args[i]);
+			double seconds = (System.nanoTime() - start) / 1e9;
+			System.out.println(scorer);
+			System.out.printf("%.1f MB in %.2f s, %.1f MB/s, %.0f deals/s%n", scorer.numByte() / 1e6, seconds,
+					scorer.numByte() / 1e6 / seconds, scorer.numDeal() / seconds);
+
+		} catch (IllegalArgumentException e) {
+			System.out.print(e.getMessage());
+			System.exit(1);
+		} catch (IOException e) {
+			System.out.println(e.getMessage());
+			System.exit(1);
+		}
+	}
+}
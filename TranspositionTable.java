@@ -0,0 +1,91 @@
+/** This class is used to remember the values of the positions of a search,
+ *  so that a position reached again by another order of moves is not
+ *  searched again.
+ *
+ *  A position is known by a 64-bit hash, such as a Zobrist hash, and the
+ *  table has a fixed number of entries, a position going to the entry given
+ *  by the low bits of its hash and taking the place of the one there. It can
+ *  be shared by many threads without any lock: every entry is two longs, the
+ *  value and the hash xored with the value, so an entry whose two halves were
+ *  written by different threads does not match any hash and is just missed.
+ *
+ * @author Dongsheng Jiang
+ * @login_id DONGSHENGJ
+ */
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+public class TranspositionTable {
+
+	// the number of longs in an entry
+	private static final int ENTRY_SIZE = 2;
+
+
+	private final AtomicLongArray entries;
+	private final int mask;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+
+	/** Construct a TranspositionTable.
+	 *
+	 * @param bits the number of entries is 2 to the power of bits.
+	 */
+	public TranspositionTable(int bits) {
+		if (bits < 1 || bits > 28)
+			throw new IllegalArgumentException("The table should have 2^1 to 2^28 entries\n");
+		this.entries = new AtomicLongArray(ENTRY_SIZE << bits);
+		this.mask = (1 << bits) - 1;
+	}
+
+
+	/** find the value of a position.
+	 *
+	 * @param hash the hash of the position.
+	 * @return the value, NaN if it is not in the table.
+	 */
+	public double get(long hash) {
+		int i = ((int) hash & mask) * ENTRY_SIZE;
+		long value = entries.get(i + 1);
+		if ((entries.get(i) ^ value) != hash) {
+			misses.increment();
+			return Double.NaN;
+		}
+		hits.increment();
+		return Double.longBitsToDouble(value);
+	}
+
+
+	/** store the value of a position.
+	 *
+	 * @param hash the hash of the position.
+	 * @param value the value.
+	 */
+	public void put(long hash, double value) {
+		int i = ((int) hash & mask) * ENTRY_SIZE;
+		long bits = Double.doubleToRawLongBits(value);
+		entries.set(i + 1, bits);
+		entries.set(i, hash ^ bits);
+	}
+
+
+	/** @return the number of positions found in the table */
+	public long hits() {
+		return hits.sum();
+	}
+
+
+	/** @return the number of positions not found in the table */
+	public long misses() {
+		return misses.sum();
+	}
+
+
+	/** forget all the positions. */
+	public void clear() {
+		for (int i = 0; i < entries.length(); i++) {
+			entries.set(i, 0);
+		}
+	}
+}
@@ -0,0 +1,78 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Generation of the 4-card combinations of a hand of n cards with
+ *  Calcultor.combination and with a reused Combinations cursor, and of the
+ *  possible start cards with Hand.restCard, for n from 4 to 6.
+ *
+ * @author Dongsheng Jiang
+ * @login_id DONGSHENGJ
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CombinationBenchmark {
+
+	@Param({"4", "5", "6"})
+	public int numCard;
+
+	private long[] masks;
+	private Object[] hands;
+	private Object cursor;
+
+
+	@Setup
+	public void setup() throws Throwable {
+		masks = Corpus.hands(numCard, Corpus.SEED + numCard);
+		hands = Corpus.toHands(masks);
+		cursor = (Object) Targets.NEW_CURSOR.invokeExact();
+	}
+
+
+	@Benchmark
+	@OperationsPerInvocation(Corpus.SIZE)
+	public void combination(Blackhole bh) throws Throwable {
+		for (int i = 0; i < Corpus.SIZE; i++) {
+			bh.consume((Object) Targets.COMBINATION.invokeExact(hands[i], 4));
+		}
+	}
+
+
+	@Benchmark
+	@OperationsPerInvocation(Corpus.SIZE)
+	public void cursor(Blackhole bh) throws Throwable {
+		for (int i = 0; i < Corpus.SIZE; i++) {
+			Object c = (Object) Targets.CURSOR_RESET.invokeExact(cursor, masks[i], 4);
+			while ((boolean) Targets.CURSOR_NEXT.invokeExact(c)) {
+				bh.consume((long) Targets.CURSOR_MASK.invokeExact(c));
+			}
+		}
+	}
+
+
+	@Benchmark
+	@OperationsPerInvocation(Corpus.SIZE)
+	public void restCard(Blackhole bh) throws Throwable {
+		for (int i = 0; i < Corpus.SIZE; i++) {
+			bh.consume((Object) Targets.REST_CARD.invokeExact(hands[i]));
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package bench;
+
+import java.util.SplittableRandom;
+
+/** Fixed corpora of random hands, the same on every run so that results can
+ *  be compared across changes.
+ *
+ * @author Dongsheng Jiang
+ * @login_id DONGSHENGJ
+ */
+final class Corpus {
+
+	// seed of every corpus
+	static final long SEED = 20181018L;
+	// number of items in every corpus
+	static final int SIZE = 1024;
+	// number of cards in a deck
+	private static final int NUM_CARD = 52;
+
+
+	private Corpus() {}
+
+
+	/** @return SIZE masks of numCard distinct cards each */
+	static long[] hands(int numCard, long seed) {
+		SplittableRandom random = new SplittableRandom(seed);
+		long[] hands = new long[SIZE];
+		for (int i = 0; i < SIZE; i++) {
+			long hand = 0;
+			while (Long.bitCount(hand) < numCard) {
+				hand |= 1L << random.nextInt(NUM_CARD);
+			}
+			hands[i] = hand;
+		}
+		return hands;
+	}
+
+
+	/** @return one start card for each hand, not in that hand */
+	static int[] starters(long[] hands, long seed) {
+		SplittableRandom random = new SplittableRandom(seed);
+		int[] starters = new int[hands.length];
+		for (int i = 0; i < hands.length; i++) {
+			int card;
+			do {
+				card = random.nextInt(NUM_CARD);
+			} while ((hands[i] & 1L << card) != 0);
+			starters[i] = card;
+		}
+		return starters;
+	}
+
+
+	/** @return the Hand objects for some masks */
+	static Object[] toHands(long[] hands) throws Throwable {
+		Object[] objects = new Object[hands.length];
+		for (int i = 0; i < hands.length; i++) {
+			objects[i] = (Object) Targets.NEW_HAND.invokeExact(hands[i]);
+		}
+		return objects;
+	}
+
+
+	/** @return the Card objects for some card indices */
+	static Object[] toCards(int[] cards) throws Throwable {
+		Object[] objects = new Object[cards.length];
+		for (int i = 0; i < cards.length; i++) {
+			objects[i] = (Object) Targets.CARD_OF.invokeExact(cards[i]);
+		}
+		return objects;
+	}
+}
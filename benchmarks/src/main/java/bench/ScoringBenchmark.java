@@ -0,0 +1,165 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Scoring of one hand of four cards with one start card: the whole of
+ *  Calcultor.totalPoints, each rule on its own, and the histogram and table
+ *  engines. Every score is one hand of a fixed corpus.
+ *
+ * @author Dongsheng Jiang
+ * @login_id DONGSHENGJ
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScoringBenchmark {
+
+	private long[] hands;
+	private int[] starters;
+	// the hands plus their start card
+	private long[] cards;
+	private Object[] handObjects;
+	private Object[] starterObjects;
+	private Object histogram;
+
+
+	@Setup
+	public void setup() throws Throwable {
+		hands = Corpus.hands(4, Corpus.SEED);
+		starters = Corpus.starters(hands, Corpus.SEED + 1);
+		cards = new long[hands.length];
+		for (int i = 0; i < hands.length; i++) {
+			cards[i] = hands[i] | 1L << starters[i];
+		}
+		handObjects = Corpus.toHands(hands);
+		starterObjects = Corpus.toCards(starters);
+		histogram = (Object) Targets.NEW_HISTOGRAM.invokeExact();
+	}
+
+
+	@Benchmark
+	@OperationsPerInvocation(Corpus.SIZE)
+	public void totalPoints(Blackhole bh) throws Throwable {
+		for (int i = 0; i < Corpus.SIZE; i++) {
+			bh.consume((int) Targets.TOTAL_POINTS.invokeExact(handObjects[i], starterObjects[i]));
+		}
+	}
+
+
+	@Benchmark
+	@OperationsPerInvocation(Corpus.SIZE)
+	public void totalPointsMask(Blackhole bh) throws Throwable {
+		for (int i = 0; i < Corpus.SIZE; i++) {
+			bh.consume((int) Targets.TOTAL_POINTS_MASK.invokeExact(hands[i], starters[i]));
+		}
+	}
+
+
+	@Benchmark
+	@OperationsPerInvocation(Corpus.SIZE)
+	public void cribPoints(Blackhole bh) throws Throwable {
+		for (int i = 0; i < Corpus.SIZE; i++) {
+			bh.consume((int) Targets.CRIB_POINTS.invokeExact(hands[i], starters[i]));
+		}
+	}
+
+
+	@Benchmark
+	@OperationsPerInvocation(Corpus.SIZE)
+	public void ruleNob(Blackhole bh) throws Throwable {
+		for (int i = 0; i < Corpus.SIZE; i++) {
+			bh.consume((int) Targets.POINTS_FOR_NOB.invokeExact(hands[i], starters[i]));
+		}
+	}
+
+
+	@Benchmark
+	@OperationsPerInvocation(Corpus.SIZE)
+	public void ruleFlushes(Blackhole bh) throws Throwable {
+		for (int i = 0; i < Corpus.SIZE; i++) {
+			bh.consume((int) Targets.POINTS_FOR_FLUSHES.invokeExact(hands[i], starters[i]));
+		}
+	}
+
+
+	@Benchmark
+	@OperationsPerInvocation(Corpus.SIZE)
+	public void rule15s(Blackhole bh) throws Throwable {
+		for (int i = 0; i < Corpus.SIZE; i++) {
+			bh.consume((int) Targets.POINTS_FOR_15S.invokeExact(cards[i]));
+		}
+	}
+
+
+	@Benchmark
+	@OperationsPerInvocation(Corpus.SIZE)
+	public void rulePairs(Blackhole bh) throws Throwable {
+		for (int i = 0; i < Corpus.SIZE; i++) {
+			bh.consume((int) Targets.POINTS_FOR_PAIRS.invokeExact(cards[i]));
+		}
+	}
+
+
+	@Benchmark
+	@OperationsPerInvocation(Corpus.SIZE)
+	public void ruleRuns(Blackhole bh) throws Throwable {
+		for (int i = 0; i < Corpus.SIZE; i++) {
+			bh.consume((int) Targets.POINTS_FOR_RUNS.invokeExact(cards[i]));
+		}
+	}
+
+
+	@Benchmark
+	@OperationsPerInvocation(Corpus.SIZE)
+	public void histogram15s(Blackhole bh) throws Throwable {
+		for (int i = 0; i < Corpus.SIZE; i++) {
+			Object h = (Object) Targets.HISTOGRAM_SET.invokeExact(histogram, cards[i]);
+			bh.consume((int) Targets.HISTOGRAM_15S.invokeExact(h));
+		}
+	}
+
+
+	@Benchmark
+	@OperationsPerInvocation(Corpus.SIZE)
+	public void histogramPairs(Blackhole bh) throws Throwable {
+		for (int i = 0; i < Corpus.SIZE; i++) {
+			Object h = (Object) Targets.HISTOGRAM_SET.invokeExact(histogram, cards[i]);
+			bh.consume((int) Targets.HISTOGRAM_PAIRS.invokeExact(h));
+		}
+	}
+
+
+	@Benchmark
+	@OperationsPerInvocation(Corpus.SIZE)
+	public void histogramRuns(Blackhole bh) throws Throwable {
+		for (int i = 0; i < Corpus.SIZE; i++) {
+			Object h = (Object) Targets.HISTOGRAM_SET.invokeExact(histogram, cards[i]);
+			bh.consume((int) Targets.HISTOGRAM_RUNS.invokeExact(h));
+		}
+	}
+
+
+	@Benchmark
+	@OperationsPerInvocation(Corpus.SIZE)
+	public void tableLookup(Blackhole bh) throws Throwable {
+		for (int i = 0; i < Corpus.SIZE; i++) {
+			bh.consume((int) Targets.TABLE_POINTS.invokeExact(cards[i]));
+		}
+	}
+}
@@ -0,0 +1,57 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** A whole decision of SelectHand: choosing the 4 cards to keep from a hand
+ *  of 4, 5 or 6 cards, in the calling thread.
+ *
+ * @author Dongsheng Jiang
+ * @login_id DONGSHENGJ
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SelectionBenchmark {
+
+	// number of hands selected per invocation
+	private static final int BATCH = 64;
+
+	@Param({"4", "5", "6"})
+	public int numCard;
+
+	private Object[] hands;
+	private Object selector;
+
+
+	@Setup
+	public void setup() throws Throwable {
+		hands = Corpus.toHands(Corpus.hands(numCard, Corpus.SEED + 10 + numCard));
+		selector = (Object) Targets.NEW_SELECTOR.invokeExact();
+	}
+
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public void select(Blackhole bh) throws Throwable {
+		for (int i = 0; i < BATCH; i++) {
+			bh.consume((Object) Targets.SELECT.invokeExact(selector, hands[i]));
+		}
+	}
+}
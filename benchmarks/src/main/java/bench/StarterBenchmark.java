@@ -0,0 +1,99 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Scoring of one hand of four cards with all the 46 start cards left from
+ *  a deal of 6: totalPoints for every start card, Calcultor.sumPoints once
+ *  per rank, and StarterScorer one rank at a time and in vectors. The forked
+ *  JVM gets the jdk.incubator.vector module, so the vector one is used.
+ *
+ * @author Dongsheng Jiang
+ * @login_id DONGSHENGJ
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class StarterBenchmark {
+
+	// number of cards in a deck
+	private static final long FULL_DECK = (1L << 52) - 1;
+
+	private long[] keeps;
+	private long[] starters;
+	private Object scalar;
+	private Object vector;
+
+
+	@Setup
+	public void setup() throws Throwable {
+		long[] deals = Corpus.hands(6, Corpus.SEED + 20);
+		keeps = new long[deals.length];
+		starters = new long[deals.length];
+		for (int i = 0; i < deals.length; i++) {
+			// the 4 lowest cards are kept
+			long deal = deals[i];
+			keeps[i] = deal & ~Long.highestOneBit(deal) & ~Long.highestOneBit(deal & ~Long.highestOneBit(deal));
+			starters[i] = FULL_DECK & ~deal;
+		}
+		scalar = (Object) Targets.NEW_STARTER_SCORER.invokeExact();
+		vector = (Object) Targets.STARTER_SCORER_CREATE.invokeExact();
+		if (!(boolean) Targets.STARTER_VECTORIZED.invokeExact(vector))
+			throw new IllegalStateException("the Vector API is not there");
+	}
+
+
+	@Benchmark
+	@OperationsPerInvocation(Corpus.SIZE)
+	public void perStarter(Blackhole bh) throws Throwable {
+		for (int i = 0; i < Corpus.SIZE; i++) {
+			int sum = 0;
+			for (long cards = starters[i]; cards != 0; cards &= cards - 1) {
+				sum += (int) Targets.TOTAL_POINTS_MASK.invokeExact(keeps[i], Long.numberOfTrailingZeros(cards));
+			}
+			bh.consume(sum);
+		}
+	}
+
+
+	@Benchmark
+	@OperationsPerInvocation(Corpus.SIZE)
+	public void sumPoints(Blackhole bh) throws Throwable {
+		for (int i = 0; i < Corpus.SIZE; i++) {
+			bh.consume((int) Targets.SUM_POINTS.invokeExact(keeps[i], starters[i]));
+		}
+	}
+
+
+	@Benchmark
+	@OperationsPerInvocation(Corpus.SIZE)
+	public void scalarLanes(Blackhole bh) throws Throwable {
+		for (int i = 0; i < Corpus.SIZE; i++) {
+			bh.consume((int) Targets.STARTER_SUM_POINTS.invokeExact(scalar, keeps[i], starters[i]));
+		}
+	}
+
+
+	@Benchmark
+	@OperationsPerInvocation(Corpus.SIZE)
+	public void vectorLanes(Blackhole bh) throws Throwable {
+		for (int i = 0; i < Corpus.SIZE; i++) {
+			bh.consume((int) Targets.STARTER_SUM_POINTS.invokeExact(vector, keeps[i], starters[i]));
+		}
+	}
+}
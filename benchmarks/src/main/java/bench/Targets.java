@@ -0,0 +1,132 @@
+package bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/** Handles on the methods of the program that are measured.
+ *
+ *  The classes of the program are in the default package, which a class in a
+ *  named package cannot name, and JMH does not accept benchmarks in the
+ *  default package. So they are reached through method handles, looked up once
+ *  by class name. The handles are static final, so the JIT compiler treats them
+ *  as constants and inlines the calls as if they were direct. Private rules of
+ *  Calcultor are reached the same way, every class being in the unnamed module.
+ *
+ *  Hand and Card objects are passed around as Object.
+ *
+ * @author Dongsheng Jiang
+ * @login_id DONGSHENGJ
+ */
+final class Targets {
+
+	static final Class<?> CARD = load("Card");
+	static final Class<?> HAND = load("Hand");
+	static final Class<?> LIST = load("List");
+	static final Class<?> CALCULTOR = load("Calcultor");
+	static final Class<?> HISTOGRAM = load("RankHistogram");
+	static final Class<?> TABLE = load("ScoreTable");
+	static final Class<?> SELECTOR = load("Selector");
+	static final Class<?> COMBINATIONS = load("Combinations");
+	static final Class<?> STARTER_SCORER = load("StarterScorer");
+
+	// (long) -> Hand
+	static final MethodHandle NEW_HAND = constructor(HAND, long.class);
+	// (int) -> Card
+	static final MethodHandle CARD_OF = method(CARD, "of", CARD, int.class);
+	// () -> RankHistogram
+	static final MethodHandle NEW_HISTOGRAM = constructor(HISTOGRAM);
+	// () -> Selector
+	static final MethodHandle NEW_SELECTOR = constructor(SELECTOR);
+
+	// Calcultor.totalPoints(Hand, Card) -> int
+	static final MethodHandle TOTAL_POINTS = method(CALCULTOR, "totalPoints", int.class, HAND, CARD);
+	// Calcultor.totalPoints(long, int) -> int
+	static final MethodHandle TOTAL_POINTS_MASK = method(CALCULTOR, "totalPoints", int.class, long.class, int.class);
+	// Calcultor.sumPoints(long, long) -> int
+	static final MethodHandle SUM_POINTS = method(CALCULTOR, "sumPoints", int.class, long.class, long.class);
+	// Calcultor.cribPoints(long, int) -> int
+	static final MethodHandle CRIB_POINTS = method(CALCULTOR, "cribPoints", int.class, long.class, int.class);
+
+	// the rules of Calcultor: (long hand, int startCard) -> int and (long cards) -> int
+	static final MethodHandle POINTS_FOR_NOB = method(CALCULTOR, "pointsForNob", int.class, long.class, int.class);
+	static final MethodHandle POINTS_FOR_FLUSHES = method(CALCULTOR, "pointsForFlushes", int.class, long.class, int.class);
+	static final MethodHandle POINTS_FOR_15S = method(CALCULTOR, "pointsFor15S", int.class, long.class);
+	static final MethodHandle POINTS_FOR_PAIRS = method(CALCULTOR, "pointsForPairs", int.class, long.class);
+	static final MethodHandle POINTS_FOR_RUNS = method(CALCULTOR, "pointsForRuns", int.class, long.class);
+
+	// RankHistogram: set(long) -> RankHistogram, then () -> int for each rule
+	static final MethodHandle HISTOGRAM_SET = virtual(HISTOGRAM, "set", HISTOGRAM, long.class);
+	static final MethodHandle HISTOGRAM_15S = virtual(HISTOGRAM, "pointsFor15S", int.class);
+	static final MethodHandle HISTOGRAM_PAIRS = virtual(HISTOGRAM, "pointsForPairs", int.class);
+	static final MethodHandle HISTOGRAM_RUNS = virtual(HISTOGRAM, "pointsForRuns", int.class);
+	// ScoreTable.points(long) -> int
+	static final MethodHandle TABLE_POINTS = method(TABLE, "points", int.class, long.class);
+
+	// Calcultor.combination(Hand, int) -> List
+	static final MethodHandle COMBINATION = method(CALCULTOR, "combination", LIST, HAND, int.class);
+	// () -> Combinations, then reset(long, int) -> Combinations, next() -> boolean and mask() -> long
+	static final MethodHandle NEW_CURSOR = constructor(COMBINATIONS);
+	static final MethodHandle CURSOR_RESET = virtual(COMBINATIONS, "reset", COMBINATIONS, long.class, int.class);
+	static final MethodHandle CURSOR_NEXT = virtual(COMBINATIONS, "next", boolean.class);
+	static final MethodHandle CURSOR_MASK = virtual(COMBINATIONS, "mask", long.class);
+	// Hand.restCard() -> Card[]
+	static final MethodHandle REST_CARD = virtual(HAND, "restCard", CARD.arrayType());
+	// () -> StarterScorer, the one doing the ranks one at a time and the best one there is,
+	// then sumPoints(long, long) -> int and vectorized() -> boolean
+	static final MethodHandle NEW_STARTER_SCORER = constructor(STARTER_SCORER);
+	static final MethodHandle STARTER_SCORER_CREATE = method(STARTER_SCORER, "create", STARTER_SCORER);
+	static final MethodHandle STARTER_SUM_POINTS = virtual(STARTER_SCORER, "sumPoints", int.class, long.class, long.class);
+	static final MethodHandle STARTER_VECTORIZED = virtual(STARTER_SCORER, "vectorized", boolean.class);
+	// Selector.select(Hand) -> Hand
+	static final MethodHandle SELECT = virtual(SELECTOR, "select", HAND, HAND);
+
+
+	private Targets() {}
+
+
+	private static Class<?> load(String name) {
+		try {
+			return Class.forName(name);
+		} catch (ClassNotFoundException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+
+	/** look up a method, private or not, with Hand and Card objects turned into Object */
+	private static MethodHandle method(Class<?> owner, String name, Class<?> result, Class<?>... params) {
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(owner, MethodHandles.lookup());
+			return erase(lookup.findStatic(owner, name, MethodType.methodType(result, params)));
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+
+	private static MethodHandle virtual(Class<?> owner, String name, Class<?> result, Class<?>... params) {
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(owner, MethodHandles.lookup());
+			return erase(lookup.findVirtual(owner, name, MethodType.methodType(result, params)));
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+
+	private static MethodHandle constructor(Class<?> owner, Class<?>... params) {
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(owner, MethodHandles.lookup());
+			return erase(lookup.findConstructor(owner, MethodType.methodType(void.class, params)));
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+
+	/** turn every reference type of a handle into Object, keeping primitives */
+	private static MethodHandle erase(MethodHandle handle) {
+		return handle.asType(handle.type().erase());
+	}
+}
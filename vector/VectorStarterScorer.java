@@ -0,0 +1,99 @@
+/** This class is used to sum up the total points of a hand of 4 cards with
+ *  each of some start cards, doing the operations of StarterScorer for all
+ *  the ranks of start card at once, one rank in every lane of a vector of
+ *  the Vector API.
+ *
+ *  With 512-bit vectors the 13 ranks fit in the 16 lanes of one vector, with
+ *  256-bit ones they take two. The lanes past the king have no start card,
+ *  so they add nothing to the sum.
+ *
+ *  It needs the incubating module jdk.incubator.vector, both to compile and
+ *  to run, so it is kept apart from the other classes, which build with a
+ *  plain javac *.java. To build it too, from the top of the repository:
+ *      javac *.java
+ *      javac --add-modules jdk.incubator.vector -cp . -d . vector/VectorStarterScorer.java
+ *  and run with java --add-modules jdk.incubator.vector. Without the class
+ *  or the module, StarterScorer.create() gives a StarterScorer instead.
+ *
+ * @author Dongsheng Jiang
+ * @login_id DONGSHENGJ
+ */
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+public class VectorStarterScorer extends StarterScorer {
+
+	private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+	private static final int POINTS_FOR_15S = 2;
+	private static final int POINTS_FOR_PAIRS = 2;
+	// the pairs of cards in a run of 3 ranks made by a triple
+	private static final int PAIRS_FOR_TRIPLE = 3;
+	// the numbers of sets of cards summing to 0-7 are in the low int of StarterScorer.sets
+	private static final int SETS_PER_INT = Integer.SIZE / SET_BITS;
+
+
+	// for every rank, where the number of sets summing to 15 less its value is in its int of sets
+	private static final int[] SET_SHIFT = new int[NUM_LANE];
+	// for every rank, whether that number is in the high int of sets
+	private static final boolean[] SET_HIGH = new boolean[NUM_LANE];
+
+	static {
+		for (int rank = 0; rank < NUM_LANE; rank++) {
+			SET_SHIFT[rank] = SET_BITS * (COMPLEMENT[rank] % SETS_PER_INT);
+			SET_HIGH[rank] = COMPLEMENT[rank] >= SETS_PER_INT;
+		}
+	}
+
+
+	@Override
+	public boolean vectorized() {
+		return true;
+	}
+
+
+	@Override
+	protected int rankSum() {
+		IntVector total = IntVector.zero(SPECIES);
+		IntVector lowSets = IntVector.broadcast(SPECIES, (int) sets);
+		IntVector highSets = IntVector.broadcast(SPECIES, (int) (sets >>> Integer.SIZE));
+		for (int offset = 0; offset < Card.NUM_RANK; offset += SPECIES.length()) {
+			IntVector weight = IntVector.fromArray(SPECIES, weights, offset);
+			IntVector rank = IntVector.fromArray(SPECIES, RANK, offset);
+			IntVector count = IntVector.fromArray(SPECIES, counts, offset);
+
+			// 15s and pairs, with the number of sets summing to 15 less the value of each rank
+			VectorMask<Integer> high = VectorMask.fromArray(SPECIES, SET_HIGH, offset);
+			IntVector fifteens = lowSets.blend(highSets, high)
+					.lanewise(VectorOperators.LSHR, IntVector.fromArray(SPECIES, SET_SHIFT, offset))
+					.and(SET_MASK);
+			IntVector points = fifteens.mul(POINTS_FOR_15S).add(count.mul(POINTS_FOR_PAIRS));
+
+			// the block of 3 or more ranks in a row, if there is one
+			IntVector mask = IntVector.broadcast(SPECIES, 1).lanewise(VectorOperators.LSHL, rank).or(rankMask);
+			IntVector starts = mask.and(mask.lanewise(VectorOperators.LSHR, 1))
+					.and(mask.lanewise(VectorOperators.LSHR, 2));
+			IntVector block = starts.or(starts.lanewise(VectorOperators.LSHL, 1))
+					.or(starts.lanewise(VectorOperators.LSHL, 2));
+
+			IntVector inBlock = block.lanewise(VectorOperators.LSHR, rank).and(1);
+			IntVector numCard = inBlock;
+			for (int i = 0; i < NUM_CARD; i++) {
+				numCard = numCard.add(block.lanewise(VectorOperators.LSHR, ranks[i]).and(1));
+			}
+			IntVector pairs = inBlock.mul(count);
+			for (int i = 0; i < numPair; i++) {
+				pairs = pairs.add(block.lanewise(VectorOperators.LSHR, pairRanks[i]).and(1));
+			}
+			IntVector length = numCard.sub(pairs.min(2));
+			IntVector product = IntVector.broadcast(SPECIES, 1).lanewise(VectorOperators.LSHL, pairs)
+					.blend(PAIRS_FOR_TRIPLE, pairs.eq(PAIRS_FOR_TRIPLE));
+			IntVector runs = length.mul(product).blend(0, starts.eq(0));
+
+			total = total.add(points.add(runs).mul(weight));
+		}
+		return total.reduceLanes(VectorOperators.ADD);
+	}
+}